@@ -0,0 +1,423 @@
+package com.eftimoff.androipathview;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
+
+import com.nineoldandroids.animation.ValueAnimator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * View that draws many path animations in a single onDraw, e.g. a grid of animated icons. The
+ * instances of the same svg share their geometry, and all of them run on one frame clock.
+ */
+@SuppressWarnings("unused")
+public class MultiPathView extends View {
+    /**
+     * All the instances in drawing order.
+     */
+    private final List<Instance> instances = new ArrayList<>();
+    /**
+     * The shared state of the drawables per svg resource.
+     */
+    private final SparseArray<Drawable.ConstantState> states = new SparseArray<>();
+    /**
+     * The clip of the canvas, for culling the instances.
+     */
+    private final Rect clipBounds = new Rect();
+    /**
+     * The single clock of all the animations.
+     */
+    private final ValueAnimator clock = ValueAnimator.ofFloat(0.0f, 1.0f);
+    /**
+     * The number of running animations.
+     */
+    private int running;
+
+    /**
+     * Default constructor.
+     *
+     * @param context The Context of the application.
+     */
+    public MultiPathView(Context context) {
+        this(context, null);
+    }
+
+    /**
+     * Default constructor.
+     *
+     * @param context The Context of the application.
+     * @param attrs   attributes provided from the resources.
+     */
+    public MultiPathView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    /**
+     * Default constructor.
+     *
+     * @param context  The Context of the application.
+     * @param attrs    attributes provided from the resources.
+     * @param defStyle Default style.
+     */
+    public MultiPathView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        clock.setRepeatCount(ValueAnimator.INFINITE);
+        clock.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                onFrame(AnimationUtils.currentAnimationTimeMillis());
+            }
+        });
+    }
+
+    /**
+     * Adds an instance of an svg. Instances of the same svg share the loaded geometry.
+     *
+     * @param svgResource - The resource id of the raw svg.
+     * @param bounds      - Where the svg is drawn, in the coordinates of the view.
+     * @return The new instance.
+     */
+    public Instance addInstance(final int svgResource, final Rect bounds) {
+        Drawable.ConstantState state = states.get(svgResource);
+        final PathDrawable drawable;
+        if (state == null) {
+            drawable = new PathDrawable(getResources(), svgResource);
+            states.put(svgResource, drawable.getConstantState());
+        } else {
+            drawable = (PathDrawable) state.newDrawable();
+        }
+        drawable.setCallback(this);
+        drawable.setBounds(bounds);
+        final Instance instance = new Instance(this, svgResource, drawable);
+        instances.add(instance);
+        invalidate(bounds);
+        return instance;
+    }
+
+    /**
+     * Removes an instance.
+     *
+     * @param instance - The instance to be removed.
+     */
+    public void removeInstance(final Instance instance) {
+        if (instances.remove(instance)) {
+            instance.cancel();
+            instance.drawable.setCallback(null);
+            invalidate(instance.drawable.getBounds());
+        }
+    }
+
+    /**
+     * Removes all the instances.
+     */
+    public void clearInstances() {
+        for (int i = instances.size() - 1; i >= 0; i--) {
+            removeInstance(instances.get(i));
+        }
+    }
+
+    /**
+     * @return The number of instances.
+     */
+    public int getInstanceCount() {
+        return instances.size();
+    }
+
+    /**
+     * @param index The index of the instance in drawing order.
+     * @return The instance.
+     */
+    public Instance getInstance(final int index) {
+        return instances.get(index);
+    }
+
+    /**
+     * Finds the topmost visible instance at a point.
+     *
+     * @param x - The x coordinate in the view.
+     * @param y - The y coordinate in the view.
+     * @return The instance or null.
+     */
+    public Instance findInstanceAt(final float x, final float y) {
+        for (int i = instances.size() - 1; i >= 0; i--) {
+            final Instance instance = instances.get(i);
+            if (instance.visible && instance.drawable.getBounds().contains((int) x, (int) y)) {
+                return instance;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (!canvas.getClipBounds(clipBounds)) {
+            return;
+        }
+        final int count = instances.size();
+        for (int i = 0; i < count; i++) {
+            final Instance instance = instances.get(i);
+            final Rect bounds = instance.drawable.getBounds();
+            if (instance.visible && Rect.intersects(clipBounds, bounds)) {
+                instance.drawable.draw(canvas);
+            }
+        }
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        if (who instanceof PathDrawable) {
+            for (int i = 0; i < instances.size(); i++) {
+                if (instances.get(i).drawable == who) {
+                    return true;
+                }
+            }
+        }
+        return super.verifyDrawable(who);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (running > 0) {
+            clock.start();
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        clock.cancel();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * Advances the running animations.
+     *
+     * @param now The time of the frame.
+     */
+    private void onFrame(final long now) {
+        final int count = instances.size();
+        for (int i = 0; i < count; i++) {
+            instances.get(i).onFrame(now);
+        }
+        if (running == 0) {
+            clock.cancel();
+        }
+    }
+
+    /**
+     * Called when an instance starts or stops animating.
+     *
+     * @param started If it started.
+     */
+    private void onInstanceRunning(final boolean started) {
+        running += started ? 1 : -1;
+        if (started && running == 1 && !clock.isRunning()) {
+            clock.start();
+        }
+    }
+
+    /**
+     * One svg drawn by the view, with its own bounds, progress and animation.
+     */
+    public static class Instance {
+        /**
+         * The view that draws the instance.
+         */
+        private final MultiPathView parent;
+        /**
+         * The raw resource id of the svg.
+         */
+        private final int svgResource;
+        /**
+         * The drawable of the instance.
+         */
+        private final PathDrawable drawable;
+        /**
+         * If the instance is drawn.
+         */
+        private boolean visible = true;
+        /**
+         * Interpolator for the time of the animation.
+         */
+        private Interpolator interpolator;
+        /**
+         * The start time of the running animation, or -1 if it is not running.
+         */
+        private long startTime = -1;
+        /**
+         * The duration of the running animation.
+         */
+        private int duration;
+        /**
+         * Object attached to the instance by the caller.
+         */
+        private Object tag;
+
+        /**
+         * Constructor.
+         *
+         * @param parent      The view that draws the instance.
+         * @param svgResource The raw resource id of the svg.
+         * @param drawable    The drawable of the instance.
+         */
+        private Instance(final MultiPathView parent, final int svgResource,
+                         final PathDrawable drawable) {
+            this.parent = parent;
+            this.svgResource = svgResource;
+            this.drawable = drawable;
+        }
+
+        /**
+         * @return The raw resource id of the svg.
+         */
+        public int getSvgResource() {
+            return svgResource;
+        }
+
+        /**
+         * @return The bounds of the instance. Must not be changed.
+         */
+        public Rect getBounds() {
+            return drawable.getBounds();
+        }
+
+        /**
+         * Moves the instance.
+         *
+         * @param bounds - Where the svg is drawn, in the coordinates of the view.
+         */
+        public void setBounds(final Rect bounds) {
+            parent.invalidate(drawable.getBounds());
+            drawable.setBounds(bounds);
+            parent.invalidate(bounds);
+        }
+
+        /**
+         * Set the percentage of the paths that is drawn.
+         *
+         * @param percentage - The percentage in [0,1].
+         */
+        public void setPercentage(final float percentage) {
+            drawable.setPercentage(percentage);
+        }
+
+        /**
+         * @return The percentage of the paths that is drawn.
+         */
+        public float getPercentage() {
+            return drawable.getPercentage();
+        }
+
+        /**
+         * Set if the instance is drawn and found by hit testing.
+         *
+         * @param visible - If the instance is visible.
+         */
+        public void setVisible(final boolean visible) {
+            this.visible = visible;
+            parent.invalidate(drawable.getBounds());
+        }
+
+        /**
+         * @return If the instance is visible.
+         */
+        public boolean isVisible() {
+            return visible;
+        }
+
+        /**
+         * Set the color of the paths of this instance.
+         *
+         * @param color - The color.
+         */
+        public void setPathColor(final int color) {
+            drawable.setColorFilter(new PorterDuffColorFilter(color, PorterDuff.Mode.SRC_IN));
+        }
+
+        /**
+         * Set the Interpolator of the animation.
+         *
+         * @param interpolator - Interpolator or null for linear.
+         */
+        public void setInterpolator(final Interpolator interpolator) {
+            this.interpolator = interpolator;
+        }
+
+        /**
+         * Draws the paths from the start on the clock of the view.
+         *
+         * @param duration - The duration of the animation.
+         * @param delay    - The delay before the animation.
+         */
+        public void start(final int duration, final int delay) {
+            final boolean wasRunning = isRunning();
+            this.duration = Math.max(duration, 1);
+            startTime = AnimationUtils.currentAnimationTimeMillis() + delay;
+            drawable.setPercentage(0f);
+            if (!wasRunning) {
+                parent.onInstanceRunning(true);
+            }
+        }
+
+        /**
+         * Stops the animation, leaving the paths where they are.
+         */
+        public void cancel() {
+            if (isRunning()) {
+                startTime = -1;
+                parent.onInstanceRunning(false);
+            }
+        }
+
+        /**
+         * @return If the animation is running.
+         */
+        public boolean isRunning() {
+            return startTime >= 0;
+        }
+
+        /**
+         * @param tag - Object attached to the instance.
+         */
+        public void setTag(final Object tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * @return The object attached to the instance.
+         */
+        public Object getTag() {
+            return tag;
+        }
+
+        /**
+         * Advances the animation to the time of the frame.
+         *
+         * @param now The time of the frame.
+         */
+        private void onFrame(final long now) {
+            if (!isRunning() || now < startTime) {
+                return;
+            }
+            final float fraction = Math.min(1f, (now - startTime) / (float) duration);
+            final float interpolated = interpolator != null
+                    ? interpolator.getInterpolation(fraction) : fraction;
+            drawable.setPercentage(Math.max(0f, Math.min(1f, interpolated)));
+            if (fraction >= 1f) {
+                cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.eftimoff.androipathview;
+
+/**
+ * Something whose paths are drawn up to a percentage, the view and the drawable, so both are
+ * animated by the same AnimatorBuilder.
+ */
+interface PathAnimatable {
+    /**
+     * Sets the percentage of the paths that is drawn.
+     *
+     * @param percentage The percentage, in [0,1].
+     */
+    void setPercentage(float percentage);
+}
@@ -0,0 +1,369 @@
+package com.eftimoff.androipathview;
+
+import android.view.animation.Interpolator;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Precomputed timeline that drives many paths from a single clock.
+ * <p/>
+ * The schedule is computed once per path set into primitive arrays, so evaluating a frame is a
+ * single pass over floats no matter how the paths are ordered, staggered or overlapped.
+ */
+public class PathChoreographer {
+
+    /**
+     * The order in which the paths are played.
+     */
+    public enum Order {
+        /**
+         * The order in which the paths appear in the svg document.
+         */
+        DOCUMENT,
+        /**
+         * Sweep from left to right by the center of the path bounds.
+         */
+        HORIZONTAL,
+        /**
+         * Sweep from top to bottom by the center of the path bounds.
+         */
+        VERTICAL,
+        /**
+         * The longest paths are played first.
+         */
+        LENGTH
+    }
+
+    /**
+     * How much of the timeline each path gets.
+     */
+    public enum DurationMode {
+        /**
+         * Every path is drawn for the same amount of time.
+         */
+        EQUAL,
+        /**
+         * Every path is drawn for time proportional to its length, so the pen speed is constant.
+         */
+        BY_LENGTH
+    }
+
+    /**
+     * The order of the paths.
+     */
+    private Order order = Order.DOCUMENT;
+    /**
+     * If the order must be reversed.
+     */
+    private boolean reverse;
+    /**
+     * The duration mode of the paths.
+     */
+    private DurationMode durationMode = DurationMode.EQUAL;
+    /**
+     * Explicit duration weights per path in document order. Overrides the duration mode.
+     */
+    private float[] weights;
+    /**
+     * How much of the previous group is left when the next one starts. 0 is sequential, 1 is
+     * parallel.
+     */
+    private float overlap = 0f;
+    /**
+     * Extra offset between the start of two groups, in units of an average path duration.
+     */
+    private float stagger = 0f;
+    /**
+     * Number of consecutive paths (in play order) that start together.
+     */
+    private int groupSize = 1;
+    /**
+     * Interpolator applied to the local progress of every path.
+     */
+    private Interpolator pathInterpolator;
+    /**
+     * Normalized start time of every path in document order.
+     */
+    private float[] starts = new float[0];
+    /**
+     * Inverse of the normalized duration of every path in document order.
+     */
+    private float[] inverseDurations = new float[0];
+    /**
+     * The last applied fraction of every path, used to skip paths that did not change.
+     */
+    private float[] fractions = new float[0];
+    /**
+     * Scratch for the normalized duration of every path in document order.
+     */
+    private float[] durations = new float[0];
+    /**
+     * Scratch for the document indices of the paths in play order.
+     */
+    private int[] playOrder = new int[0];
+    /**
+     * Scratch for sorting the paths, the sort key in the high bits and the index in the low.
+     */
+    private long[] sortKeys = new long[0];
+    /**
+     * Number of paths in the current schedule.
+     */
+    private int count;
+    /**
+     * The generation of the paths the schedule was computed for, or -1 if it must be recomputed.
+     */
+    private int scheduledGeneration = -1;
+
+    /**
+     * Set the order in which the paths are played.
+     *
+     * @param order   The order of the paths.
+     * @param reverse If the order must be reversed.
+     */
+    public void setOrder(final Order order, final boolean reverse) {
+        this.order = order;
+        this.reverse = reverse;
+        scheduledGeneration = -1;
+    }
+
+    /**
+     * Set how the timeline is split between the paths.
+     *
+     * @param durationMode The duration mode.
+     */
+    public void setDurationMode(final DurationMode durationMode) {
+        this.durationMode = durationMode;
+        this.weights = null;
+        scheduledGeneration = -1;
+    }
+
+    /**
+     * Set explicit duration weights for the paths in document order. Missing weights are 1.
+     *
+     * @param weights The relative duration of each path.
+     */
+    public void setWeights(final float... weights) {
+        this.weights = weights;
+        scheduledGeneration = -1;
+    }
+
+    /**
+     * Set how much consecutive groups overlap.
+     *
+     * @param overlap 0 for sequential, 1 for parallel.
+     */
+    public void setOverlap(final float overlap) {
+        if (overlap < 0.0f || overlap > 1.0f) {
+            throw new IllegalArgumentException("overlap not between 0.0f and 1.0f");
+        }
+        this.overlap = overlap;
+        scheduledGeneration = -1;
+    }
+
+    /**
+     * Set the offset between the start of two groups.
+     *
+     * @param stagger The offset in units of an average path duration.
+     */
+    public void setStagger(final float stagger) {
+        if (stagger < 0.0f) {
+            throw new IllegalArgumentException("stagger must not be negative");
+        }
+        this.stagger = stagger;
+        scheduledGeneration = -1;
+    }
+
+    /**
+     * Set how many consecutive paths start together.
+     *
+     * @param groupSize The size of a group, at least 1.
+     */
+    public void setGroupSize(final int groupSize) {
+        if (groupSize < 1) {
+            throw new IllegalArgumentException("groupSize must be at least 1");
+        }
+        this.groupSize = groupSize;
+        scheduledGeneration = -1;
+    }
+
+    /**
+     * Set the interpolator applied to each path separately.
+     *
+     * @param pathInterpolator Interpolator or null for linear.
+     */
+    public void setPathInterpolator(final Interpolator pathInterpolator) {
+        this.pathInterpolator = pathInterpolator;
+        scheduledGeneration = -1;
+    }
+
+    /**
+     * @return The number of paths in the current schedule.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return The generation of the paths the schedule was computed for, or -1 if it must be
+     * recomputed.
+     */
+    int getScheduledGeneration() {
+        return scheduledGeneration;
+    }
+
+    /**
+     * Compute the schedule for the paths. Must be called with the path lock held. Only the
+     * animated paths get a slot of the timeline, the slots of the animated paths fill all of it
+     * and the paths that are not animated get no duration and no delay.
+     *
+     * @param paths      The paths to be scheduled.
+     * @param generation The generation of the paths.
+     */
+    void schedule(final List<SvgUtils.SvgPath> paths, final int generation) {
+        scheduledGeneration = generation;
+        count = paths.size();
+        if (starts.length < count) {
+            starts = new float[count];
+            inverseDurations = new float[count];
+            fractions = new float[count];
+            durations = new float[count];
+            playOrder = new int[count];
+        }
+        if (count == 0) {
+            return;
+        }
+
+        final float[] durations = this.durations;
+        float totalLength = 0;
+        int animatedCount = 0;
+        for (int i = 0; i < count; i++) {
+            final SvgUtils.SvgPath svgPath = paths.get(i);
+            if (svgPath.animated) {
+                totalLength += svgPath.getLength();
+                animatedCount++;
+            }
+        }
+        final float averageLength = animatedCount > 0 ? totalLength / animatedCount : 0;
+        for (int i = 0; i < count; i++) {
+            if (!paths.get(i).animated) {
+                durations[i] = 0f;
+            } else if (weights != null) {
+                durations[i] = i < weights.length ? Math.max(weights[i], 0f) : 1f;
+            } else if (durationMode == DurationMode.BY_LENGTH && averageLength > 0) {
+                durations[i] = paths.get(i).getLength() / averageLength;
+            } else {
+                durations[i] = 1f;
+            }
+        }
+
+        final int[] playOrder = this.playOrder;
+        sortPaths(paths);
+        // Keep only the animated paths, in place since j never passes i.
+        for (int i = 0, j = 0; i < count; i++) {
+            final int index = playOrder[i];
+            if (paths.get(index).animated) {
+                playOrder[j++] = index;
+            } else {
+                starts[index] = 0f;
+            }
+        }
+        float groupStart = 0;
+        float total = 0;
+        for (int i = 0; i < animatedCount; i += groupSize) {
+            final int groupEnd = Math.min(i + groupSize, animatedCount);
+            float groupDuration = 0;
+            for (int j = i; j < groupEnd; j++) {
+                final int index = playOrder[j];
+                starts[index] = groupStart;
+                groupDuration = Math.max(groupDuration, durations[index]);
+                total = Math.max(total, groupStart + durations[index]);
+            }
+            groupStart += groupDuration * (1f - overlap) + stagger;
+        }
+
+        for (int i = 0; i < count; i++) {
+            starts[i] = total > 0 ? starts[i] / total : 0f;
+            inverseDurations[i] = durations[i] > 0 ? total / durations[i] : Float.MAX_VALUE;
+        }
+        Arrays.fill(fractions, 0, count, -1f);
+    }
+
+    /**
+     * Trim the paths to the given point of the timeline. Must be called with the path lock held.
+     *
+     * @param paths The paths that were scheduled.
+     * @param time  The point of the timeline, in [0,1].
+     * @return The number of paths that were trimmed.
+     */
+    int apply(final List<SvgUtils.SvgPath> paths, final float time) {
+        final int size = Math.min(count, paths.size());
+        int changed = 0;
+        for (int i = 0; i < size; i++) {
+            final SvgUtils.SvgPath svgPath = paths.get(i);
+            if (!svgPath.animated || !svgPath.isLengthKnown()) {
+                continue;
+            }
+            final float fraction =
+                    Math.max(0f, Math.min(1f, (time - starts[i]) * inverseDurations[i]));
+            if (fraction != fractions[i]) {
+                fractions[i] = fraction;
+                final float interpolated = pathInterpolator != null
+                        ? pathInterpolator.getInterpolation(fraction) : fraction;
+                svgPath.trim(svgPath.getLength() * interpolated);
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Compute the play order of the paths into the play order scratch. Paths with the same key
+     * keep their document order.
+     *
+     * @param paths The paths to be sorted.
+     */
+    private void sortPaths(final List<SvgUtils.SvgPath> paths) {
+        final int[] playOrder = this.playOrder;
+        if (order == Order.DOCUMENT) {
+            for (int i = 0; i < count; i++) {
+                playOrder[i] = i;
+            }
+        } else {
+            if (sortKeys.length < count) {
+                sortKeys = new long[count];
+            }
+            final long[] sortKeys = this.sortKeys;
+            for (int i = 0; i < count; i++) {
+                final SvgUtils.SvgPath svgPath = paths.get(i);
+                final float key;
+                switch (order) {
+                    case HORIZONTAL:
+                        key = svgPath.bounds.exactCenterX();
+                        break;
+                    case VERTICAL:
+                        key = svgPath.bounds.exactCenterY();
+                        break;
+                    default:
+                        key = -svgPath.getLength();
+                        break;
+                }
+                // Flip the bits of negative floats so they sort as ints, the index breaks ties.
+                final int bits = Float.floatToIntBits(key);
+                final long sortable = bits ^ ((bits >> 31) & 0x7fffffff);
+                sortKeys[i] = (sortable << 32) | i;
+            }
+            Arrays.sort(sortKeys, 0, count);
+            for (int i = 0; i < count; i++) {
+                playOrder[i] = (int) sortKeys[i];
+            }
+        }
+        if (reverse) {
+            for (int i = 0, j = count - 1; i < j; i++, j--) {
+                final int swap = playOrder[i];
+                playOrder[i] = playOrder[j];
+                playOrder[j] = swap;
+            }
+        }
+    }
+}
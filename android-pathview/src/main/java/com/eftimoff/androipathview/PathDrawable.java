@@ -0,0 +1,597 @@
+package com.eftimoff.androipathview;
+
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drawable that animates the paths of an svg, for places where a PathView does not fit, e.g.
+ * compound drawables or toolbar icons. It draws straight into the canvas of the host.
+ * <p/>
+ * The drawables created from the same {@link ConstantState} share the loaded geometry, every
+ * drawable only keeps its own trimmed paths.
+ */
+@SuppressWarnings("unused")
+public class PathDrawable extends Drawable implements PathAnimatable {
+    /**
+     * Posts the loaded paths to the main thread.
+     */
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    /**
+     * The shared state of the drawable.
+     */
+    private PathState state;
+    /**
+     * The paint for the paths when the natural colors are not used.
+     */
+    private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    /**
+     * Copy of the paint of a path with the stroke width and the color filter of the drawable,
+     * the interned paints are shared and never changed.
+     */
+    private final Paint drawPaint = new Paint();
+    /**
+     * The paint that was last copied into the draw paint in this draw, or null.
+     */
+    private Paint drawPaintSource;
+    /**
+     * The trimmed paths of this drawable.
+     */
+    private final List<SvgUtils.SvgPath> paths = new ArrayList<>();
+    /**
+     * The geometry the paths were copied from.
+     */
+    private SvgPathCache.Entry geometry;
+    /**
+     * Maps the shared geometry to the bounds of the drawable.
+     */
+    private final Matrix viewportMatrix = new Matrix();
+    /**
+     * The scale of the viewport matrix.
+     */
+    private float viewportScale = 1f;
+    /**
+     * Incremented for every load, so a load that was dropped is ignored.
+     */
+    private int loadGeneration;
+    /**
+     * The progress of the drawing.
+     */
+    private float progress = 0f;
+    /**
+     * If the progress or the paths changed since the paths were last trimmed.
+     */
+    private boolean pathsDirty;
+    /**
+     * The alpha of the drawable.
+     */
+    private int alpha = 255;
+    /**
+     * The color filter of the drawable, or null.
+     */
+    private ColorFilter colorFilter;
+    /**
+     * If the state was copied for this drawable.
+     */
+    private boolean mutated;
+    /**
+     * Object that builds the animation for the paths.
+     */
+    private PathView.AnimatorBuilder animatorBuilder;
+
+    /**
+     * Creates a drawable for an svg.
+     *
+     * @param resources   The resources to read the svg from.
+     * @param svgResource The raw resource id of the svg.
+     */
+    public PathDrawable(final Resources resources, final int svgResource) {
+        this(new PathState(resources, svgResource));
+    }
+
+    /**
+     * Creates a drawable for an svg with an intrinsic size.
+     *
+     * @param resources   The resources to read the svg from.
+     * @param svgResource The raw resource id of the svg.
+     * @param width       The intrinsic width in pixels.
+     * @param height      The intrinsic height in pixels.
+     */
+    public PathDrawable(final Resources resources, final int svgResource, final int width,
+                        final int height) {
+        this(new PathState(resources, svgResource));
+        state.intrinsicWidth = width;
+        state.intrinsicHeight = height;
+    }
+
+    /**
+     * Creates a drawable with a shared state.
+     *
+     * @param state The state.
+     */
+    private PathDrawable(final PathState state) {
+        this.state = state;
+        paint.setStyle(Paint.Style.STROKE);
+        updatePaint();
+    }
+
+    /**
+     * Animate this property. It is the percentage of the path that is drawn.
+     * It must be [0,1].
+     *
+     * @param percentage float the percentage of the path.
+     */
+    @Override
+    public void setPercentage(final float percentage) {
+        if (percentage < 0.0f || percentage > 1.0f) {
+            throw new IllegalArgumentException("setPercentage not between 0.0f and 1.0f");
+        }
+        progress = percentage;
+        pathsDirty = true;
+        invalidateSelf();
+    }
+
+    /**
+     * @return The percentage of the path that is drawn.
+     */
+    public float getPercentage() {
+        return progress;
+    }
+
+    /**
+     * Animator for the paths of the drawable.
+     *
+     * @return The AnimatorBuilder to build the animation.
+     */
+    public PathView.AnimatorBuilder getPathAnimator() {
+        if (animatorBuilder == null) {
+            animatorBuilder = new PathView.AnimatorBuilder(this);
+        }
+        return animatorBuilder;
+    }
+
+    /**
+     * Set the path color.
+     *
+     * @param color - The color of the paths.
+     */
+    public void setPathColor(final int color) {
+        state.pathColor = color;
+        updatePaint();
+        invalidateSelf();
+    }
+
+    /**
+     * Set the path width. The svg is extracted again for the new width.
+     *
+     * @param width - The width of the paths.
+     */
+    public void setPathWidth(final float width) {
+        if (width != state.strokeWidth) {
+            state.strokeWidth = width;
+            state.geometry = null;
+            updatePaint();
+            load(getBounds());
+        }
+    }
+
+    /**
+     * If the colors of the svg are used.
+     *
+     * @param naturalColors - If the colors of the svg are used.
+     */
+    public void setNaturalColors(final boolean naturalColors) {
+        state.naturalColors = naturalColors;
+        invalidateSelf();
+    }
+
+    @Override
+    public void draw(final Canvas canvas) {
+        final int count = paths.size();
+        if (count == 0) {
+            return;
+        }
+        trimPaths();
+        final Rect bounds = getBounds();
+        final boolean layer = alpha < 255 && state.naturalColors;
+        final int saveCount = layer
+                ? canvas.saveLayerAlpha(bounds.left, bounds.top, bounds.right, bounds.bottom,
+                alpha, Canvas.ALL_SAVE_FLAG)
+                : canvas.save();
+        canvas.translate(bounds.left, bounds.top);
+        canvas.concat(viewportMatrix);
+        drawPaintSource = null;
+        for (int i = 0; i < count; i++) {
+            final SvgUtils.SvgPath svgPath = paths.get(i);
+            if (svgPath.path == null) {
+                continue;
+            }
+            final Paint paint1 = state.naturalColors ? svgPath.paint : paint;
+            // The shared paints are copied, so the stroke keeps its width in pixels.
+            if (paint1 != drawPaintSource) {
+                drawPaint.set(paint1);
+                drawPaint.setStrokeWidth(paint1.getStrokeWidth() / viewportScale);
+                drawPaint.setColorFilter(colorFilter);
+                drawPaintSource = paint1;
+            }
+            canvas.drawPath(svgPath.path, drawPaint);
+        }
+        canvas.restoreToCount(saveCount);
+    }
+
+    @Override
+    protected void onBoundsChange(final Rect bounds) {
+        super.onBoundsChange(bounds);
+        load(bounds);
+    }
+
+    @Override
+    public void setAlpha(final int alpha) {
+        this.alpha = alpha;
+        updatePaint();
+        invalidateSelf();
+    }
+
+    @Override
+    public int getAlpha() {
+        return alpha;
+    }
+
+    @Override
+    public void setColorFilter(final ColorFilter colorFilter) {
+        this.colorFilter = colorFilter;
+        invalidateSelf();
+    }
+
+    /**
+     * @return The width given in the constructor, otherwise the width of the viewBox of the svg
+     * in dp, or -1 if the svg has no viewBox.
+     */
+    @Override
+    public int getIntrinsicWidth() {
+        state.readIntrinsicSize();
+        return state.intrinsicWidth;
+    }
+
+    /**
+     * @return The height given in the constructor, otherwise the height of the viewBox of the
+     * svg in dp, or -1 if the svg has no viewBox.
+     */
+    @Override
+    public int getIntrinsicHeight() {
+        state.readIntrinsicSize();
+        return state.intrinsicHeight;
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+
+    @Override
+    public ConstantState getConstantState() {
+        state.changingConfigurations = getChangingConfigurations();
+        return state;
+    }
+
+    @Override
+    public Drawable mutate() {
+        if (!mutated && super.mutate() == this) {
+            state = new PathState(state);
+            mutated = true;
+        }
+        return this;
+    }
+
+    /**
+     * Applies the color, width and alpha to the paint.
+     */
+    private void updatePaint() {
+        paint.setColor(state.pathColor);
+        paint.setAlpha(Color.alpha(state.pathColor) * alpha / 255);
+        paint.setStrokeWidth(state.strokeWidth);
+    }
+
+    /**
+     * Shows the geometry for the bounds. The shared geometry is mapped to the bounds if it is
+     * loaded, otherwise it is taken from the cache or loaded in the background.
+     *
+     * @param bounds The bounds of the drawable.
+     */
+    private void load(final Rect bounds) {
+        final int width = bounds.width();
+        final int height = bounds.height();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        loadGeneration++;
+        final PathState current = state;
+        if (current.geometry == null) {
+            final SvgPathCache.Entry cached = SvgPathCache.get(current.svgResource, width, height,
+                    current.strokeWidth);
+            if (cached != null) {
+                current.setGeometry(cached, width, height);
+            }
+        }
+        if (current.geometry != null
+                && (current.geometry.viewBox != null
+                || (current.width == width && current.height == height))) {
+            if (current.geometry == geometry || current.geometry.isMeasured()) {
+                setGeometry(current.geometry, width, height);
+            } else {
+                measureGeometry(current.geometry, width, height);
+            }
+            return;
+        }
+
+        if (current.loading) {
+            // Another drawable of the same state loads the geometry.
+            if (!current.waiting.contains(this)) {
+                current.waiting.add(this);
+            }
+            return;
+        }
+        current.loading = true;
+
+        final int load = loadGeneration;
+        final int svgResource = current.svgResource;
+        final float strokeWidth = current.strokeWidth;
+        final SvgUtils utils = new SvgUtils(paint);
+        utils.load(current.resources, svgResource);
+        SvgLoadQueue.submit(new SvgLoadQueue.Task(SvgLoadQueue.PRIORITY_VISIBLE) {
+            @Override
+            public void run() {
+                final List<SvgUtils.SvgPath> extracted = utils.getPathsForViewport(width, height);
+                final SvgPathCache.Entry entry = SvgPathCache.put(svgResource, width, height,
+                        strokeWidth, extracted, utils.getViewBox());
+                entry.measure();
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        current.loading = false;
+                        if (current.strokeWidth == strokeWidth) {
+                            current.setGeometry(entry, width, height);
+                            if (load == loadGeneration && state == current) {
+                                setGeometry(entry, width, height);
+                            }
+                        }
+                        final PathDrawable[] waiting =
+                                current.waiting.toArray(new PathDrawable[current.waiting.size()]);
+                        current.waiting.clear();
+                        for (PathDrawable drawable : waiting) {
+                            drawable.load(drawable.getBounds());
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Measures the paths a view deferred measuring in the background, then shows the geometry.
+     *
+     * @param entry  The shared geometry.
+     * @param width  The width of the bounds.
+     * @param height The height of the bounds.
+     */
+    private void measureGeometry(final SvgPathCache.Entry entry, final int width,
+                                 final int height) {
+        final int load = loadGeneration;
+        final PathState current = state;
+        SvgLoadQueue.submit(new SvgLoadQueue.Task(SvgLoadQueue.PRIORITY_VISIBLE) {
+            @Override
+            public void run() {
+                entry.measure();
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (load == loadGeneration && state == current) {
+                            setGeometry(entry, width, height);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Copies the shared geometry into the trimmed paths of this drawable and maps it to the
+     * bounds.
+     *
+     * @param entry  The shared geometry.
+     * @param width  The width of the bounds.
+     * @param height The height of the bounds.
+     */
+    private void setGeometry(final SvgPathCache.Entry entry, final int width, final int height) {
+        if (entry != geometry) {
+            for (int i = 0; i < paths.size(); i++) {
+                paths.get(i).release();
+            }
+            paths.clear();
+            for (SvgUtils.SvgPath source : entry.paths) {
+                final SvgUtils.SvgPath svgPath = new SvgUtils.SvgPath(source);
+                // The paths were measured on the load, this only takes their lengths.
+                svgPath.measureIfNeeded();
+                paths.add(svgPath);
+            }
+            geometry = entry;
+            pathsDirty = true;
+        }
+        if (entry.viewBox != null) {
+            viewportScale = SvgUtils.getViewportMatrix(entry.viewBox, state.width, state.height,
+                    width, height, state.strokeWidth, viewportMatrix);
+        } else {
+            viewportMatrix.reset();
+            viewportScale = 1f;
+        }
+        invalidateSelf();
+    }
+
+    /**
+     * Trims the paths to the progress if it changed since the last draw. Only the paths whose
+     * trimmed length changes are trimmed.
+     */
+    private void trimPaths() {
+        if (!pathsDirty) {
+            return;
+        }
+        pathsDirty = false;
+        final int count = paths.size();
+        for (int i = 0; i < count; i++) {
+            final SvgUtils.SvgPath svgPath = paths.get(i);
+            final float length = svgPath.length * progress;
+            if (length != svgPath.trimmedLength) {
+                svgPath.trim(length);
+            }
+        }
+    }
+
+    /**
+     * The state shared by the drawables of the same svg.
+     */
+    static final class PathState extends ConstantState {
+        /**
+         * The resources to read the svg from.
+         */
+        final Resources resources;
+        /**
+         * The raw resource id of the svg.
+         */
+        final int svgResource;
+        /**
+         * The color of the paths.
+         */
+        int pathColor = 0xff00ff00;
+        /**
+         * The width of the paths.
+         */
+        float strokeWidth = 8f;
+        /**
+         * If the colors of the svg are used.
+         */
+        boolean naturalColors;
+        /**
+         * The loaded geometry, or null.
+         */
+        SvgPathCache.Entry geometry;
+        /**
+         * The width the geometry was extracted for.
+         */
+        int width;
+        /**
+         * The height the geometry was extracted for.
+         */
+        int height;
+        /**
+         * The intrinsic width of the drawable, -1 if it has none.
+         */
+        int intrinsicWidth = -1;
+        /**
+         * The intrinsic height of the drawable, -1 if it has none.
+         */
+        int intrinsicHeight = -1;
+        /**
+         * If the intrinsic size was given or read from the viewBox.
+         */
+        boolean intrinsicSizeRead;
+        /**
+         * The changing configurations of the drawable.
+         */
+        int changingConfigurations;
+        /**
+         * If a drawable of this state is loading the geometry.
+         */
+        boolean loading;
+        /**
+         * The drawables waiting for the geometry that is loading.
+         */
+        final List<PathDrawable> waiting = new ArrayList<>();
+
+        /**
+         * Creates a state for an svg.
+         *
+         * @param resources   The resources to read the svg from.
+         * @param svgResource The raw resource id of the svg.
+         */
+        PathState(final Resources resources, final int svgResource) {
+            this.resources = resources;
+            this.svgResource = svgResource;
+        }
+
+        /**
+         * Copies a state. The geometry stays shared.
+         *
+         * @param source The state to copy.
+         */
+        PathState(final PathState source) {
+            this(source.resources, source.svgResource);
+            pathColor = source.pathColor;
+            strokeWidth = source.strokeWidth;
+            naturalColors = source.naturalColors;
+            geometry = source.geometry;
+            width = source.width;
+            height = source.height;
+            intrinsicWidth = source.intrinsicWidth;
+            intrinsicHeight = source.intrinsicHeight;
+            intrinsicSizeRead = source.intrinsicSizeRead;
+            changingConfigurations = source.changingConfigurations;
+        }
+
+        /**
+         * Reads the intrinsic size from the viewBox of the svg once, unless it was given. The
+         * units of the viewBox are taken as dp.
+         */
+        void readIntrinsicSize() {
+            if (intrinsicSizeRead) {
+                return;
+            }
+            intrinsicSizeRead = true;
+            if (intrinsicWidth >= 0 && intrinsicHeight >= 0) {
+                return;
+            }
+            final RectF viewBox = geometry != null && geometry.viewBox != null
+                    ? geometry.viewBox : SvgUtils.readViewBox(resources, svgResource);
+            if (viewBox != null) {
+                final float density = resources.getDisplayMetrics().density;
+                intrinsicWidth = Math.round(viewBox.width() * density);
+                intrinsicHeight = Math.round(viewBox.height() * density);
+            }
+        }
+
+        /**
+         * Set the loaded geometry.
+         *
+         * @param geometry The geometry.
+         * @param width    The width it was extracted for.
+         * @param height   The height it was extracted for.
+         */
+        void setGeometry(final SvgPathCache.Entry geometry, final int width, final int height) {
+            this.geometry = geometry;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public Drawable newDrawable() {
+            return new PathDrawable(this);
+        }
+
+        @Override
+        public int getChangingConfigurations() {
+            return changingConfigurations;
+        }
+    }
+}
@@ -0,0 +1,588 @@
+package com.eftimoff.androipathview;
+
+import android.graphics.Path;
+import android.graphics.PathMeasure;
+
+import java.util.Arrays;
+
+/**
+ * The geometry of all the paths of an svg, packed into primitive arrays: one verb per segment,
+ * its points, and the length of the path at the end of every segment.
+ * <p/>
+ * The geometry is built once by the loader and immutable afterwards, so it is shared by every
+ * view showing the svg. A trimmed path is written into an android Path only when it is drawn.
+ * <p/>
+ * The verbs and points are captured first, the lengths are measured afterwards, path by path,
+ * so the paths can be measured in parallel or only when they are animated.
+ * <p/>
+ * Finished paths can be read while the loader appends more. The arrays are volatile and only
+ * replaced by complete copies, so a reader sees the finished paths in either array.
+ */
+final class PathGeometry {
+    /**
+     * Starts a contour, 1 point.
+     */
+    static final byte VERB_MOVE = 0;
+    /**
+     * A line, 1 point.
+     */
+    static final byte VERB_LINE = 1;
+    /**
+     * A quadratic bezier, 2 points.
+     */
+    static final byte VERB_QUAD = 2;
+    /**
+     * A cubic bezier, 3 points.
+     */
+    static final byte VERB_CUBIC = 3;
+    /**
+     * A line back to the start of the contour, no points.
+     */
+    static final byte VERB_CLOSE = 4;
+    /**
+     * The number of lines a curve is split into to measure it.
+     */
+    private static final int CURVE_STEPS = 16;
+    /**
+     * The shortest distance between the points sampled from a path that can only be measured.
+     */
+    private static final float SAMPLE_STEP = 12f;
+    /**
+     * The largest number of curves a contour of a path that can only be measured is split into.
+     */
+    private static final int MAX_SAMPLES = 256;
+    /**
+     * The initial capacity of the arrays.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The verbs of all the paths.
+     */
+    private volatile byte[] verbs = new byte[INITIAL_CAPACITY];
+    /**
+     * The length of its path at the end of every verb.
+     */
+    private volatile float[] lengths = new float[INITIAL_CAPACITY];
+    /**
+     * The x and y of the points of all the verbs.
+     */
+    private volatile float[] points = new float[INITIAL_CAPACITY * 2];
+    /**
+     * The first verb of every path, and the end of the last one.
+     */
+    private volatile int[] verbStarts = new int[INITIAL_CAPACITY / 4 + 1];
+    /**
+     * The first point coordinate of every path.
+     */
+    private volatile int[] pointStarts = new int[INITIAL_CAPACITY / 4];
+    /**
+     * The left, top, right and bottom of the points of every path.
+     */
+    private volatile float[] bounds = new float[INITIAL_CAPACITY];
+    /**
+     * If the lengths of every path were measured.
+     */
+    private volatile boolean[] measured = new boolean[INITIAL_CAPACITY / 4];
+    /**
+     * The number of verbs.
+     */
+    private int verbCount;
+    /**
+     * The number of point coordinates.
+     */
+    private int pointCount;
+    /**
+     * The number of finished paths.
+     */
+    private int pathCount;
+    /**
+     * The first point coordinate of the path that is built.
+     */
+    private int pathPointStart;
+    /**
+     * The bounds of the path that is built.
+     */
+    private float left = Float.MAX_VALUE, top = Float.MAX_VALUE, right = -Float.MAX_VALUE,
+            bottom = -Float.MAX_VALUE;
+    /**
+     * Reused point for sampling.
+     */
+    private final float[] sample = new float[2];
+    /**
+     * Reused tangent for sampling.
+     */
+    private final float[] tangent = new float[2];
+
+    /**
+     * Starts a contour.
+     */
+    void moveTo(final float x, final float y) {
+        addVerb(VERB_MOVE);
+        addPoint(x, y);
+    }
+
+    /**
+     * Adds a line.
+     */
+    void lineTo(final float x, final float y) {
+        addVerb(VERB_LINE);
+        addPoint(x, y);
+    }
+
+    /**
+     * Adds a quadratic bezier.
+     */
+    void quadTo(final float x1, final float y1, final float x2, final float y2) {
+        addVerb(VERB_QUAD);
+        addPoint(x1, y1);
+        addPoint(x2, y2);
+    }
+
+    /**
+     * Adds a cubic bezier.
+     */
+    void cubicTo(final float x1, final float y1, final float x2, final float y2,
+                 final float x3, final float y3) {
+        addVerb(VERB_CUBIC);
+        addPoint(x1, y1);
+        addPoint(x2, y2);
+        addPoint(x3, y3);
+    }
+
+    /**
+     * Closes the contour.
+     */
+    void close() {
+        addVerb(VERB_CLOSE);
+    }
+
+    /**
+     * Adds a path that can only be measured, as cubic curves between points sampled along it.
+     * Every curve follows the tangents at both of its ends, so a few samples keep the path
+     * smooth, and a long contour is never split into more than {@link #MAX_SAMPLES} curves.
+     *
+     * @param path The path.
+     */
+    void addSampled(final Path path) {
+        final PathMeasure measure = new PathMeasure(path, false);
+        do {
+            final float contourLength = measure.getLength();
+            final int steps = Math.max(1, Math.min(MAX_SAMPLES,
+                    (int) Math.ceil(contourLength / SAMPLE_STEP)));
+            final float handle = contourLength / steps / 3f;
+            float x = 0;
+            float y = 0;
+            float tangentX = 0;
+            float tangentY = 0;
+            for (int i = 0; i <= steps; i++) {
+                measure.getPosTan(contourLength * i / steps, sample, tangent);
+                if (i == 0) {
+                    moveTo(sample[0], sample[1]);
+                } else {
+                    cubicTo(x + tangentX * handle, y + tangentY * handle,
+                            sample[0] - tangent[0] * handle, sample[1] - tangent[1] * handle,
+                            sample[0], sample[1]);
+                }
+                x = sample[0];
+                y = sample[1];
+                tangentX = tangent[0];
+                tangentY = tangent[1];
+            }
+            if (measure.isClosed()) {
+                close();
+            }
+        } while (measure.nextContour());
+    }
+
+    /**
+     * @return If the path that is built has nothing to draw.
+     */
+    boolean isPathEmpty() {
+        final int start = verbStarts[pathCount];
+        for (int i = start; i < verbCount; i++) {
+            if (verbs[i] != VERB_MOVE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops the verbs of the path that is built.
+     */
+    void discardPath() {
+        verbCount = verbStarts[pathCount];
+        pointCount = pathPointStart;
+        resetPath();
+    }
+
+    /**
+     * Finishes the path that is built.
+     *
+     * @return The index of the path.
+     */
+    int endPath() {
+        final int index = pathCount;
+        if (verbStarts.length < index + 2) {
+            growPaths();
+        }
+        pointStarts[index] = pathPointStart;
+        bounds[index * 4] = left;
+        bounds[index * 4 + 1] = top;
+        bounds[index * 4 + 2] = right;
+        bounds[index * 4 + 3] = bottom;
+        pathCount++;
+        verbStarts[pathCount] = verbCount;
+        pathPointStart = pointCount;
+        resetPath();
+        return index;
+    }
+
+    /**
+     * Shrinks the arrays to their content once the geometry is complete.
+     */
+    synchronized void trimToSize() {
+        verbs = Arrays.copyOf(verbs, verbCount);
+        lengths = Arrays.copyOf(lengths, verbCount);
+        points = Arrays.copyOf(points, pointCount);
+        verbStarts = Arrays.copyOf(verbStarts, pathCount + 1);
+        pointStarts = Arrays.copyOf(pointStarts, pathCount);
+        bounds = Arrays.copyOf(bounds, pathCount * 4);
+        measured = Arrays.copyOf(measured, pathCount);
+    }
+
+    /**
+     * @return The memory of the arrays in bytes.
+     */
+    int getByteCount() {
+        return verbs.length + measured.length + 4 * (lengths.length + points.length
+                + verbStarts.length + pointStarts.length + bounds.length);
+    }
+
+    /**
+     * Measures the lengths of a finished path if they were not measured yet. It is safe while
+     * the loader appends paths.
+     *
+     * @param index The index of the path.
+     */
+    synchronized void measure(final int index) {
+        if (!measured[index]) {
+            measurePath(index);
+        }
+    }
+
+    /**
+     * Measures the lengths of a finished path. The paths can be measured on many threads at
+     * once, but only while no paths are appended.
+     *
+     * @param index The index of the path.
+     */
+    void measurePath(final int index) {
+        final byte[] verbs = this.verbs;
+        final float[] lengths = this.lengths;
+        final float[] points = this.points;
+        final int end = verbStarts[index + 1];
+        int p = pointStarts[index];
+        float x = 0, y = 0, contourX = 0, contourY = 0;
+        float length = 0;
+        for (int v = verbStarts[index]; v < end; v++) {
+            switch (verbs[v]) {
+                case VERB_MOVE:
+                    x = contourX = points[p];
+                    y = contourY = points[p + 1];
+                    p += 2;
+                    break;
+                case VERB_LINE:
+                    length += distance(x, y, points[p], points[p + 1]);
+                    x = points[p];
+                    y = points[p + 1];
+                    p += 2;
+                    break;
+                case VERB_QUAD:
+                    length += measureCurve(VERB_QUAD, x, y, points[p], points[p + 1],
+                            points[p + 2], points[p + 3], 0, 0);
+                    x = points[p + 2];
+                    y = points[p + 3];
+                    p += 4;
+                    break;
+                case VERB_CUBIC:
+                    length += measureCurve(VERB_CUBIC, x, y, points[p], points[p + 1],
+                            points[p + 2], points[p + 3], points[p + 4], points[p + 5]);
+                    x = points[p + 4];
+                    y = points[p + 5];
+                    p += 6;
+                    break;
+                default:
+                    length += distance(x, y, contourX, contourY);
+                    x = contourX;
+                    y = contourY;
+                    break;
+            }
+            lengths[v] = length;
+        }
+        measured[index] = true;
+    }
+
+    /**
+     * @param index The index of the path.
+     * @return If the lengths of the path were measured.
+     */
+    boolean isMeasured(final int index) {
+        return measured[index];
+    }
+
+    /**
+     * @param index The index of the path.
+     * @return The length of all the contours of the path, 0 if it was not measured.
+     */
+    float getLength(final int index) {
+        final int[] verbStarts = this.verbStarts;
+        final int end = verbStarts[index + 1];
+        return end > verbStarts[index] ? lengths[end - 1] : 0;
+    }
+
+    /**
+     * @param index The index of the path.
+     * @return The number of contours of the path.
+     */
+    int getContourCount(final int index) {
+        final int[] verbStarts = this.verbStarts;
+        final byte[] verbs = this.verbs;
+        int contours = 0;
+        for (int i = verbStarts[index]; i < verbStarts[index + 1]; i++) {
+            if (verbs[i] == VERB_MOVE) {
+                contours++;
+            }
+        }
+        return contours;
+    }
+
+    /**
+     * @param index The index of the path.
+     * @param side  0 for left, 1 for top, 2 for right, 3 for bottom.
+     * @return The side of the bounds of the points of the path.
+     */
+    float getBound(final int index, final int side) {
+        return bounds[index * 4 + side];
+    }
+
+    /**
+     * Writes the segment of a path from its start to a length. An infinite length writes the
+     * whole path, also if it was not measured.
+     *
+     * @param index  The index of the path.
+     * @param length The length of the segment.
+     * @param out    Receives the segment.
+     */
+    void trim(final int index, final float length, final Path out) {
+        out.reset();
+        final int[] verbStarts = this.verbStarts;
+        final byte[] verbs = this.verbs;
+        final float[] lengths = this.lengths;
+        final float[] points = this.points;
+        final int start = verbStarts[index];
+        final int end = verbStarts[index + 1];
+        int p = this.pointStarts[index];
+        float x = 0, y = 0, contourX = 0, contourY = 0;
+        float previous = 0;
+        for (int v = start; v < end; v++) {
+            final byte verb = verbs[v];
+            final float segmentEnd = lengths[v];
+            if (verb == VERB_MOVE) {
+                if (v > start && previous >= length) {
+                    break;
+                }
+                x = contourX = points[p];
+                y = contourY = points[p + 1];
+                out.moveTo(x, y);
+                p += 2;
+                continue;
+            }
+            final boolean partial = segmentEnd > length;
+            final float t = partial ? (length - previous) / (segmentEnd - previous) : 1f;
+            switch (verb) {
+                case VERB_LINE:
+                    out.lineTo(x + (points[p] - x) * t, y + (points[p + 1] - y) * t);
+                    x = points[p];
+                    y = points[p + 1];
+                    p += 2;
+                    break;
+                case VERB_CLOSE:
+                    if (partial) {
+                        out.lineTo(x + (contourX - x) * t, y + (contourY - y) * t);
+                    } else {
+                        out.close();
+                    }
+                    x = contourX;
+                    y = contourY;
+                    break;
+                case VERB_QUAD:
+                case VERB_CUBIC:
+                    final boolean cubic = verb == VERB_CUBIC;
+                    final float x3 = cubic ? points[p + 4] : 0;
+                    final float y3 = cubic ? points[p + 5] : 0;
+                    if (partial) {
+                        splitCurve(verb, x, y, points[p], points[p + 1], points[p + 2],
+                                points[p + 3], x3, y3, length - previous, out);
+                    } else if (cubic) {
+                        out.cubicTo(points[p], points[p + 1], points[p + 2], points[p + 3],
+                                x3, y3);
+                    } else {
+                        out.quadTo(points[p], points[p + 1], points[p + 2], points[p + 3]);
+                    }
+                    x = cubic ? x3 : points[p + 2];
+                    y = cubic ? y3 : points[p + 3];
+                    p += cubic ? 6 : 4;
+                    break;
+                default:
+                    break;
+            }
+            previous = segmentEnd;
+            if (partial) {
+                break;
+            }
+        }
+        // Required only for Android 4.4 and earlier
+        out.rLineTo(0.0f, 0.0f);
+    }
+
+    /**
+     * Writes the start of a curve up to a length along it.
+     */
+    private static void splitCurve(final byte verb, final float x0, final float y0,
+                                   final float x1, final float y1, final float x2,
+                                   final float y2, final float x3, final float y3,
+                                   final float length, final Path out) {
+        // Find the parameter of the length on the lines the curve was measured with.
+        float measured = 0;
+        float t = 1f;
+        float px = x0, py = y0;
+        for (int i = 1; i <= CURVE_STEPS; i++) {
+            final float s = i / (float) CURVE_STEPS;
+            final float qx = evaluate(verb, x0, x1, x2, x3, s);
+            final float qy = evaluate(verb, y0, y1, y2, y3, s);
+            final float step = distance(px, py, qx, qy);
+            if (measured + step >= length) {
+                t = (i - 1 + (step > 0 ? (length - measured) / step : 0)) / CURVE_STEPS;
+                break;
+            }
+            measured += step;
+            px = qx;
+            py = qy;
+        }
+        final float ax = x0 + (x1 - x0) * t;
+        final float ay = y0 + (y1 - y0) * t;
+        final float bx = x1 + (x2 - x1) * t;
+        final float by = y1 + (y2 - y1) * t;
+        if (verb == VERB_QUAD) {
+            out.quadTo(ax, ay, ax + (bx - ax) * t, ay + (by - ay) * t);
+            return;
+        }
+        final float cx = x2 + (x3 - x2) * t;
+        final float cy = y2 + (y3 - y2) * t;
+        final float abx = ax + (bx - ax) * t;
+        final float aby = ay + (by - ay) * t;
+        final float bcx = bx + (cx - bx) * t;
+        final float bcy = by + (cy - by) * t;
+        out.cubicTo(ax, ay, abx, aby, abx + (bcx - abx) * t, aby + (bcy - aby) * t);
+    }
+
+    /**
+     * Measures a curve as the lines between points on it.
+     */
+    private static float measureCurve(final byte verb, final float x0, final float y0,
+                                      final float x1, final float y1, final float x2,
+                                      final float y2, final float x3, final float y3) {
+        float measured = 0;
+        float px = x0, py = y0;
+        for (int i = 1; i <= CURVE_STEPS; i++) {
+            final float s = i / (float) CURVE_STEPS;
+            final float qx = evaluate(verb, x0, x1, x2, x3, s);
+            final float qy = evaluate(verb, y0, y1, y2, y3, s);
+            measured += distance(px, py, qx, qy);
+            px = qx;
+            py = qy;
+        }
+        return measured;
+    }
+
+    /**
+     * Evaluates one coordinate of a curve.
+     */
+    private static float evaluate(final byte verb, final float c0, final float c1,
+                                  final float c2, final float c3, final float t) {
+        final float u = 1 - t;
+        if (verb == VERB_QUAD) {
+            return u * u * c0 + 2 * u * t * c1 + t * t * c2;
+        }
+        return u * u * u * c0 + 3 * u * u * t * c1 + 3 * u * t * t * c2 + t * t * t * c3;
+    }
+
+    /**
+     * @return The distance between two points.
+     */
+    private static float distance(final float x0, final float y0, final float x1,
+                                  final float y1) {
+        final float dx = x1 - x0;
+        final float dy = y1 - y0;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    /**
+     * Starts the bounds of the next path.
+     */
+    private void resetPath() {
+        left = top = Float.MAX_VALUE;
+        right = bottom = -Float.MAX_VALUE;
+    }
+
+    /**
+     * Appends a verb to the path that is built. Its length is measured later.
+     *
+     * @param verb The verb.
+     */
+    private void addVerb(final byte verb) {
+        if (verbCount == verbs.length) {
+            growVerbs();
+        }
+        verbs[verbCount] = verb;
+        verbCount++;
+    }
+
+    /**
+     * Doubles the arrays of the verbs. Paths that are measured at the same time keep their
+     * lengths.
+     */
+    private synchronized void growVerbs() {
+        verbs = Arrays.copyOf(verbs, verbCount * 2);
+        lengths = Arrays.copyOf(lengths, verbCount * 2);
+    }
+
+    /**
+     * Doubles the arrays of the paths. They are sized from the same path capacity, the verb
+     * starts keep one more entry for the end of the last path.
+     */
+    private synchronized void growPaths() {
+        final int capacity = Math.max(pointStarts.length * 2, INITIAL_CAPACITY / 4);
+        verbStarts = Arrays.copyOf(verbStarts, capacity + 1);
+        pointStarts = Arrays.copyOf(pointStarts, capacity);
+        bounds = Arrays.copyOf(bounds, capacity * 4);
+        measured = Arrays.copyOf(measured, capacity);
+    }
+
+    /**
+     * Appends a point of the last verb.
+     */
+    private void addPoint(final float x, final float y) {
+        if (pointCount + 2 > points.length) {
+            points = Arrays.copyOf(points, points.length * 2);
+        }
+        points[pointCount++] = x;
+        points[pointCount++] = y;
+        left = Math.min(left, x);
+        top = Math.min(top, y);
+        right = Math.max(right, x);
+        bottom = Math.max(bottom, y);
+    }
+}
@@ -0,0 +1,91 @@
+package com.eftimoff.androipathview;
+
+import android.graphics.Path;
+
+/**
+ * The precomputed morph of the paths of one svg into the paths of another. The contours of both
+ * are paired and resampled to the same number of points when the svg is loaded, so a frame only
+ * interpolates the points into a reused Path.
+ */
+final class PathMorph {
+    /**
+     * The points of the first svg, x and y after each other.
+     */
+    private final float[] from;
+    /**
+     * The points of the second svg, paired with the points of the first.
+     */
+    private final float[] to;
+    /**
+     * The index of the first point of every contour, and the number of points at the end.
+     */
+    private final int[] starts;
+    /**
+     * If a contour is closed after its last point.
+     */
+    private final boolean[] closed;
+
+    /**
+     * Constructor.
+     *
+     * @param from   The points of the first svg.
+     * @param to     The points of the second svg.
+     * @param starts The index of the first point of every contour, and the number of points.
+     * @param closed If a contour is closed.
+     */
+    PathMorph(final float[] from, final float[] to, final int[] starts, final boolean[] closed) {
+        this.from = from;
+        this.to = to;
+        this.starts = starts;
+        this.closed = closed;
+    }
+
+    /**
+     * Writes the morphed contours into a path.
+     *
+     * @param fraction How far the morph is, 0 for the first svg and 1 for the second.
+     * @param out      The path that is replaced with the morphed contours.
+     */
+    void interpolate(final float fraction, final Path out) {
+        out.rewind();
+        final float[] from = this.from;
+        final float[] to = this.to;
+        final int contours = closed.length;
+        for (int c = 0; c < contours; c++) {
+            final int end = starts[c + 1] * 2;
+            for (int i = starts[c] * 2; i < end; i += 2) {
+                final float x = from[i] + (to[i] - from[i]) * fraction;
+                final float y = from[i + 1] + (to[i + 1] - from[i + 1]) * fraction;
+                if (i == starts[c] * 2) {
+                    out.moveTo(x, y);
+                } else {
+                    out.lineTo(x, y);
+                }
+            }
+            if (closed[c]) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * @return The number of paired contours.
+     */
+    int getContourCount() {
+        return closed.length;
+    }
+
+    /**
+     * @return The number of points of every svg.
+     */
+    int getPointCount() {
+        return starts[starts.length - 1];
+    }
+
+    /**
+     * @return The memory used by the points of the morph.
+     */
+    int getByteCount() {
+        return 4 * (from.length + to.length + starts.length) + closed.length;
+    }
+}
@@ -5,38 +5,65 @@ import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.animation.Interpolator;
 
 import com.eftimoff.mylibrary.R;
 import com.nineoldandroids.animation.Animator;
 import com.nineoldandroids.animation.ObjectAnimator;
-import com.nineoldandroids.animation.AnimatorSet;
+import com.nineoldandroids.animation.ValueAnimator;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * PathView is a View that animates paths.
  */
 @SuppressWarnings("unused")
-public class PathView extends View implements SvgUtils.AnimationStepListener {
+public class PathView extends View implements SvgUtils.AnimationStepListener, PathAnimatable {
     /**
      * Logging tag.
      */
     public static final String LOG_TAG = "PathView";
+    /**
+     * The fill is not revealed.
+     */
+    public static final int FILL_REVEAL_NONE = 0;
+    /**
+     * The fill fades in.
+     */
+    public static final int FILL_REVEAL_FADE = 1;
+    /**
+     * The fill is wiped in from the left.
+     */
+    public static final int FILL_REVEAL_WIPE = 2;
+    /**
+     * The scale of the offscreen buffer at reduced resolution quality.
+     */
+    private static final float REDUCED_RENDER_SCALE = 0.5f;
+    /**
+     * The number of steps the progress is snapped to at coarse progress quality.
+     */
+    private static final int COARSE_PROGRESS_STEPS = 32;
     /**
      * The paint for the path.
      */
     private Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
     /**
-     * Utils to catch the paths from the svg.
+     * Utils to catch the paths from the svg. Replaced when a load is dropped while it runs.
      */
-    private final SvgUtils svgUtils = new SvgUtils(paint);
+    private SvgUtils svgUtils = new SvgUtils(paint);
     /**
      * All the paths provided to the view. Both from Path and Svg.
      */
@@ -47,9 +74,142 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
      */
     private final Object mSvgLock = new Object();
     /**
-     * Thread for working with the object above.
+     * The load of the svg in the load queue, or null.
+     */
+    private SvgLoadQueue.Task mLoader;
+    /**
+     * The load of the svg document for the fill in the load queue, or null.
+     */
+    private SvgLoadQueue.Task mDocumentLoader;
+    /**
+     * The computation of the morph of the loaded paths in the load queue, or null.
+     */
+    private SvgLoadQueue.Task mMorphLoader;
+    /**
+     * The load that measures the animated paths whose measurement was deferred, or null.
+     */
+    private SvgLoadQueue.Task mMeasureLoader;
+    /**
+     * The loads taken out of the queue while the view is detached, submitted when it is
+     * attached again.
+     */
+    private final List<SvgLoadQueue.Task> mDetachedLoads = new ArrayList<>();
+    /**
+     * If the next load goes ahead of the loads of the other views.
+     */
+    private boolean mLoadPriorityBumped;
+    /**
+     * Reused rectangle for the visible part of the view.
+     */
+    private final Rect mVisibleRect = new Rect();
+    /**
+     * Updates the priority of a waiting load and pauses or resumes the animations when the view
+     * is scrolled.
+     */
+    private final ViewTreeObserver.OnScrollChangedListener mScrollListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    updateLoadPriority();
+                    updateScrolledOff();
+                }
+            };
+    /**
+     * If the animations are paused because the view was scrolled off the screen.
+     */
+    private boolean mScrolledOff;
+    /**
+     * Incremented every time the paths are replaced, so the animators can bind lazily to them.
+     */
+    private int pathsGeneration;
+    /**
+     * Incremented for every load, so a load that was dropped does not touch the paths.
+     */
+    private int mLoadGeneration;
+    /**
+     * The viewBox of the loaded svg, or null if it is not known.
+     */
+    private RectF mViewBox;
+    /**
+     * The svg resource the paths were extracted from.
+     */
+    private int mExtractedResource;
+    /**
+     * The viewport width the paths were extracted for.
+     */
+    private int mExtractedWidth;
+    /**
+     * The viewport height the paths were extracted for.
+     */
+    private int mExtractedHeight;
+    /**
+     * The stroke width the paths were extracted with.
+     */
+    private float mExtractedStrokeWidth;
+    /**
+     * Maps the extracted paths to the current viewport after a resize.
+     */
+    private final Matrix mViewportMatrix = new Matrix();
+    /**
+     * The scale of the viewport matrix, 1 if the paths were extracted for the current size.
+     */
+    private float mViewportScale = 1f;
+    /**
+     * If the viewport matrix is the identity.
+     */
+    private boolean mViewportIdentity = true;
+    /**
+     * If the paths of the svg resource are loaded.
+     */
+    private boolean svgPathsLoaded;
+    /**
+     * If all the paths of the svg are loaded, not only the first chunks.
+     */
+    private boolean mPathsComplete;
+    /**
+     * The svg the paths are morphed into, or 0.
+     */
+    private int morphSvgResourceId;
+    /**
+     * The morph of the loaded paths into the morph svg, or null until it is computed.
+     */
+    private PathMorph mMorph;
+    /**
+     * How far the paths are morphed into the morph svg.
+     */
+    private float morphFraction;
+    /**
+     * Reused path for the morphed contours.
+     */
+    private final Path mMorphPath = new Path();
+    /**
+     * Actions waiting for the paths of the svg to be loaded.
+     */
+    private final List<Runnable> pendingUntilLoaded = new ArrayList<>();
+    /**
+     * The choreographer that trimmed the paths last, or null if they are trimmed by percentage.
      */
-    private Thread mLoader;
+    private PathChoreographer activeChoreographer;
+    /**
+     * The last point of the timeline of the active choreographer.
+     */
+    private float activeChoreographyTime;
+    /**
+     * Runs the actions that were waiting for the paths to be loaded.
+     */
+    private final Runnable mRunPendingActions = new Runnable() {
+        @Override
+        public void run() {
+            final Runnable[] actions;
+            synchronized (mSvgLock) {
+                actions = pendingUntilLoaded.toArray(new Runnable[pendingUntilLoaded.size()]);
+                pendingUntilLoaded.clear();
+            }
+            for (Runnable action : actions) {
+                action.run();
+            }
+        }
+    };
 
     /**
      * The svg image from the raw directory.
@@ -64,9 +224,51 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
      */
     private AnimatorSetBuilder animatorSetBuilder;
     /**
-     * The progress of the drawing.
+     * Object that builds the choreographed animation for the paths.
+     */
+    private ChoreographyBuilder choreographyBuilder;
+    /**
+     * Object that builds the morph animation.
+     */
+    private AnimatorBuilder morphBuilder;
+    /**
+     * How the fill is revealed, one of the FILL_REVEAL constants.
+     */
+    private int fillRevealMode = FILL_REVEAL_NONE;
+    /**
+     * How far the fill is revealed.
+     */
+    private float fillRevealFraction;
+    /**
+     * The fill of the svg, rendered once and drawn over the paths while it is revealed.
+     */
+    private final StaticLayer mFillLayer = new StaticLayer();
+    /**
+     * Reused drawing state for the fill layer.
+     */
+    private final int[] mFillLayerState = new int[StaticLayer.STATE_SIZE];
+    /**
+     * Paint for drawing the fill layer.
+     */
+    private final Paint mRevealPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    /**
+     * The destination of the fill layer.
+     */
+    private final Rect mRevealRect = new Rect();
+    /**
+     * Object that builds the fill reveal animation.
+     */
+    private AnimatorBuilder fillRevealBuilder;
+    /**
+     * The progress of the drawing. Written without the path lock, read when the paths are
+     * trimmed.
+     */
+    private volatile float progress = 0f;
+    /**
+     * If the progress was set since the paths were last trimmed. It replaces an active
+     * choreography when the paths are trimmed.
      */
-    private float progress = 0f;
+    private volatile boolean mProgressDirty;
 
     /**
      * If the used colors are from the svg or from the set color.
@@ -101,6 +303,158 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
      * Will be used as a temporary Canvas for mTempBitmap for drawing content on it.
      */
     private Canvas mTempCanvas;
+    /**
+     * Paint for scaling up the offscreen bitmap with filtering.
+     */
+    private final Paint mBlitPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    /**
+     * Copy of the paint of a path with the overrides of the view, the interned paints are
+     * shared and never changed.
+     */
+    private final Paint mDrawPaint = new Paint();
+    /**
+     * The interned paint that was last copied into the draw paint, or null.
+     */
+    private Paint mDrawPaintSource;
+    /**
+     * If the draw paint was last copied without anti-aliasing.
+     */
+    private boolean mDrawPaintAliased;
+    /**
+     * The viewport scale the draw paint was last copied for.
+     */
+    private float mDrawPaintScale;
+    /**
+     * The destination of the scaled offscreen bitmap.
+     */
+    private final Rect mBlitRect = new Rect();
+    /**
+     * Paint for drawing the offscreen mask with a color.
+     */
+    private final Paint mMaskPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    /**
+     * The scale of the offscreen bitmap relative to the view.
+     */
+    private float renderScale = 1f;
+    /**
+     * The requested config of the offscreen bitmap.
+     */
+    private Bitmap.Config offscreenConfig = Bitmap.Config.ARGB_8888;
+    /**
+     * The tiles of the offscreen buffer, or null if it is one bitmap.
+     */
+    private TileCache tileCache;
+    /**
+     * Maps the paths into the tiles.
+     */
+    private final Matrix mTileMatrix = new Matrix();
+    /**
+     * Reused drawing state for the tiles.
+     */
+    private final int[] mTileState = new int[TileCache.STATE_SIZE];
+    /**
+     * The fill of the svg at the size of the view, rendered once and copied into the tiles.
+     */
+    private final StaticLayer mTileFillLayer = new StaticLayer();
+    /**
+     * Reused drawing state for the fill of the tiles.
+     */
+    private final int[] mTileFillState = new int[StaticLayer.STATE_SIZE];
+    /**
+     * The ids of the elements that are animated, or null if all the paths are animated.
+     */
+    private Set<String> animatedIds;
+    /**
+     * Counts the changes of the animated ids.
+     */
+    private int mSelectorVersion;
+    /**
+     * The generation of the paths the selection was applied to, or -1 if it must be applied.
+     */
+    private int mSelectorGeneration = -1;
+    /**
+     * The number of paths that are not animated.
+     */
+    private int mStaticPathCount;
+    /**
+     * The fill and the paths that are not animated, rendered once.
+     */
+    private final StaticLayer mStaticLayer = new StaticLayer();
+    /**
+     * Reused drawing state for the static layer.
+     */
+    private final int[] mStaticLayerState = new int[StaticLayer.STATE_SIZE];
+    /**
+     * The number of steps the progress is snapped to, or 0 for a continuous progress.
+     */
+    private int progressSteps;
+    /**
+     * The rendered frames of the steps of the progress, or null.
+     */
+    private ProgressFrameCache mFrameCache;
+    /**
+     * Canvas for copying rendered frames into the frame cache.
+     */
+    private final Canvas mFrameCacheCanvas = new Canvas();
+    /**
+     * Reused drawing state for the frame cache.
+     */
+    private final int[] mFrameState = new int[ProgressFrameCache.STATE_SIZE];
+    /**
+     * Reused pixels of the offscreen bitmap for the recolor pass.
+     */
+    private int[] mPixels;
+    /**
+     * Lowers the quality when drawing is over budget, or null.
+     */
+    private QualityGovernor qualityGovernor;
+    /**
+     * The quality level the view currently draws with.
+     */
+    private int mQualityLevel = QualityGovernor.LEVEL_FULL;
+    /**
+     * If the progress is snapped to coarse steps before trimming.
+     */
+    private boolean coarseProgress;
+    /**
+     * If the progress or the paths changed since the paths were last trimmed.
+     */
+    private boolean mPathsDirty;
+    /**
+     * The progress the paths were last trimmed to, or -1 if they must be trimmed.
+     */
+    private float mTrimmedProgress = -1f;
+    /**
+     * The generation of the paths that were last trimmed.
+     */
+    private int mTrimmedGeneration;
+    /**
+     * Listener for the timings and counters of the view.
+     */
+    private MetricsListener metricsListener;
+    /**
+     * If the stages of the view are emitted as trace sections.
+     */
+    private boolean traceEnabled;
+    /**
+     * The collected metrics, or null if neither a listener nor tracing is enabled.
+     */
+    private PathViewMetrics mMetrics;
+    /**
+     * The time of the last size change, for the loader latency.
+     */
+    private long mSizeChangedNanos;
+    /**
+     * Reports the finished load to the metrics listener.
+     */
+    private final Runnable mReportLoad = new Runnable() {
+        @Override
+        public void run() {
+            if (metricsListener != null && mMetrics != null) {
+                metricsListener.onLoadMetrics(mMetrics);
+            }
+        }
+    };
 
 
     /**
@@ -171,7 +525,8 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
             this.paths.add(new SvgUtils.SvgPath(path, paint));
         }
         synchronized (mSvgLock) {
-            updatePathsPhaseLocked();
+            pathsGeneration++;
+            markPathsDirtyLocked();
         }
     }
 
@@ -183,154 +538,1391 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
     public void setPath(final Path path) {
         paths.add(new SvgUtils.SvgPath(path, paint));
         synchronized (mSvgLock) {
-            updatePathsPhaseLocked();
+            pathsGeneration++;
+            markPathsDirtyLocked();
         }
     }
 
     /**
      * Animate this property. It is the percentage of the path that is drawn.
-     * It must be [0,1].
+     * It must be [0,1]. The value is only recorded, the paths are trimmed once when the view is
+     * drawn, so calling it many times between two frames is cheap.
      *
      * @param percentage float the percentage of the path.
      */
+    @Override
     public void setPercentage(float percentage) {
         if (percentage < 0.0f || percentage > 1.0f) {
             throw new IllegalArgumentException("setPercentage not between 0.0f and 1.0f");
         }
-        progress = percentage;
-        synchronized (mSvgLock) {
-            updatePathsPhaseLocked();
+        final PathViewMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.recordProgressUpdate(mProgressDirty);
         }
+        // No lock on this hot path, the paths are trimmed to the progress when they are drawn.
+        progress = percentage;
+        mProgressDirty = true;
         invalidate();
     }
 
     /**
-     * This refreshes the paths before draw and resize.
+     * Takes the progress that was set since the last frame, it replaces an active choreography.
+     * Must be called with the path lock held.
      */
-    private void updatePathsPhaseLocked() {
-        final int count = paths.size();
-        for (int i = 0; i < count; i++) {
-            SvgUtils.SvgPath svgPath = paths.get(i);
-            svgPath.path.reset();
-            svgPath.measure.getSegment(0.0f, svgPath.length * progress, svgPath.path, true);
-            // Required only for Android 4.4 and earlier
-            svgPath.path.rLineTo(0.0f, 0.0f);
+    private void applyProgressLocked() {
+        if (mProgressDirty) {
+            mProgressDirty = false;
+            activeChoreographer = null;
+            mPathsDirty = true;
         }
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
-
-        if(mTempBitmap==null || (mTempBitmap.getWidth()!=canvas.getWidth()||mTempBitmap.getHeight()!=canvas.getHeight()) )
-        {
-            mTempBitmap = Bitmap.createBitmap(canvas.getWidth(), canvas.getHeight(), Bitmap.Config.ARGB_8888);
-            mTempCanvas = new Canvas(mTempBitmap);
+    /**
+     * Records that the paths must be trimmed before they are drawn. Must be called with the path
+     * lock held.
+     */
+    private void markPathsDirtyLocked() {
+        final PathViewMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.recordProgressUpdate(mPathsDirty);
         }
+        mPathsDirty = true;
+    }
 
-        mTempBitmap.eraseColor(0);
-        synchronized (mSvgLock) {
-            mTempCanvas.save();
-            mTempCanvas.translate(getPaddingLeft(), getPaddingTop());
-            fill(mTempCanvas);
-            final int count = paths.size();
-            for (int i = 0; i < count; i++) {
-                final SvgUtils.SvgPath svgPath = paths.get(i);
-                final Path path = svgPath.path;
-                final Paint paint1 = naturalColors ? svgPath.paint : paint;
-                mTempCanvas.drawPath(path, paint1);
-            }
-
-            fillAfter(mTempCanvas);
-
-            mTempCanvas.restore();
-
-            applySolidColor(mTempBitmap);
-
-            canvas.drawBitmap(mTempBitmap,0,0,null);
+    /**
+     * Trims the paths to the last recorded progress if it changed since the last frame. Must be
+     * called with the path lock held.
+     */
+    private void trimPathsIfDirtyLocked() {
+        applyProgressLocked();
+        if (!mPathsDirty) {
+            return;
+        }
+        mPathsDirty = false;
+        final PathViewMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.begin(PathViewMetrics.STAGE_PROGRESS);
+        }
+        final int trimmed = updatePathsPhaseLocked();
+        if (metrics != null) {
+            metrics.end(PathViewMetrics.STAGE_PROGRESS);
+            metrics.addTrimmedPaths(trimmed);
         }
     }
+
     /**
-     * If there is svg , the user called setFillAfter(true) and the progress is finished.
+     * This refreshes the paths before draw and resize. Only the paths whose trimmed length
+     * changes are trimmed.
      *
-     * @param canvas Draw to this canvas.
+     * @return The number of paths that were trimmed.
      */
-    private void fillAfter(final Canvas canvas) {
-        if (svgResourceId != 0 && fillAfter && Math.abs(progress - 1f) < 0.00000001) {
-            svgUtils.drawSvgAfter(canvas, width, height);
+    private int updatePathsPhaseLocked() {
+        applySelectorLocked();
+        if (activeChoreographer != null) {
+            if (activeChoreographer.getScheduledGeneration() != pathsGeneration) {
+                activeChoreographer.schedule(paths, pathsGeneration);
+            }
+            mTrimmedProgress = -1f;
+            return activeChoreographer.apply(paths, activeChoreographyTime);
+        }
+        final int steps = progressSteps > 0 ? progressSteps
+                : coarseProgress ? COARSE_PROGRESS_STEPS : 0;
+        final float trimProgress = steps > 0 ? Math.round(progress * steps) / (float) steps
+                : progress;
+        if (trimProgress == mTrimmedProgress && pathsGeneration == mTrimmedGeneration) {
+            return 0;
         }
+        mTrimmedProgress = trimProgress;
+        mTrimmedGeneration = pathsGeneration;
+        final int count = paths.size();
+        int trimmed = 0;
+        for (int i = 0; i < count; i++) {
+            SvgUtils.SvgPath svgPath = paths.get(i);
+            if (!svgPath.animated || !svgPath.isLengthKnown()) {
+                continue;
+            }
+            final float length = svgPath.length * trimProgress;
+            if (length != svgPath.trimmedLength) {
+                svgPath.trim(length);
+                trimmed++;
+            }
+        }
+        return trimmed;
     }
 
     /**
-     * If there is svg , the user called setFill(true).
-     *
-     * @param canvas Draw to this canvas.
+     * Marks the paths that are animated by the selected ids, for new paths or a new selection.
+     * An animated path whose measurement was deferred by the load is measured on the load queue
+     * and drawn whole until then. The other paths are trimmed to their full length once. Must be
+     * called with the path lock held.
      */
-    private void fill(final Canvas canvas) {
-        if (svgResourceId != 0 && fill) {
-            svgUtils.drawSvgAfter(canvas, width, height);
+    private void applySelectorLocked() {
+        if (mSelectorGeneration == pathsGeneration) {
+            return;
+        }
+        mSelectorGeneration = pathsGeneration;
+        mStaticPathCount = 0;
+        List<SvgUtils.SvgPath> deferred = null;
+        final int count = paths.size();
+        for (int i = 0; i < count; i++) {
+            final SvgUtils.SvgPath svgPath = paths.get(i);
+            svgPath.animated = animatedIds == null || svgPath.hasElementId(animatedIds);
+            if (!svgPath.animated) {
+                mStaticPathCount++;
+                svgPath.trimComplete();
+            } else if (svgPath.isMeasured()) {
+                // Only takes the length, the path or its geometry was measured.
+                svgPath.measureIfNeeded();
+            } else {
+                svgPath.trimComplete();
+                if (deferred == null) {
+                    deferred = new ArrayList<>();
+                }
+                deferred.add(svgPath);
+            }
+        }
+        if (mMeasureLoader != null) {
+            SvgLoadQueue.cancel(mMeasureLoader);
+            mDetachedLoads.remove(mMeasureLoader);
+            mMeasureLoader = null;
+        }
+        if (deferred != null) {
+            measureDeferred(deferred);
         }
     }
 
     /**
-     * If fillColor had value before then we replace untransparent pixels of bitmap by solid color
+     * Measures the geometry of animated paths on the load queue, then applies the selector
+     * again so the paths take their lengths and are trimmed. Must be called with the path lock
+     * held.
      *
-     * @param bitmap Draw to this canvas.
+     * @param deferred The animated paths whose measurement was deferred.
      */
-    private void applySolidColor(final Bitmap bitmap) {
-        if(fill && fillColor!=Color.argb(0,0,0,0) )
-            if (bitmap != null) {
-                for(int x=0;x<bitmap.getWidth();x++)
-                {
-                    for(int y=0;y<bitmap.getHeight();y++)
-                    {
-                        int argb = bitmap.getPixel(x,y);
-                        int alpha = Color.alpha(argb);
-                        if(alpha!=0)
-                        {
-                            int red = Color.red(fillColor);
-                            int green = Color.green(fillColor);
-                            int blue =  Color.blue(fillColor);
-                            argb = Color.argb(alpha,red,green,blue);
-                            bitmap.setPixel(x,y,argb);
+    private void measureDeferred(final List<SvgUtils.SvgPath> deferred) {
+        mMeasureLoader = new SvgLoadQueue.Task(getLoadPriority()) {
+            @Override
+            public void run() {
+                for (int i = 0; i < deferred.size(); i++) {
+                    final SvgUtils.SvgPath svgPath = deferred.get(i);
+                    svgPath.geometry.measure(svgPath.geometryIndex);
+                }
+                final SvgLoadQueue.Task task = this;
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        synchronized (mSvgLock) {
+                            if (mMeasureLoader != task) {
+                                return;
+                            }
+                            mMeasureLoader = null;
+                            // The paths take their lengths and the caches are redrawn.
+                            pathsGeneration++;
+                            markPathsDirtyLocked();
                         }
+                        invalidate();
                     }
-                }
+                });
             }
+        };
+        submitLoad(mMeasureLoader);
     }
 
-    @Override
-    protected void onSizeChanged(final int w, final int h, int oldw, int oldh) {
-        super.onSizeChanged(w, h, oldw, oldh);
-
-        if (mLoader != null) {
-            try {
-                mLoader.join();
-            } catch (InterruptedException e) {
-                Log.e(LOG_TAG, "Unexpected error", e);
+    /**
+     * Records a point of the timeline of the choreographer. The paths are trimmed to it when the
+     * view is drawn, and the schedule is recomputed if the paths or the choreography changed
+     * since it was last applied.
+     *
+     * @param choreographer The choreographer that was scheduled for the paths.
+     * @param time          The point of the timeline, in [0,1].
+     */
+    void setChoreographyProgress(final PathChoreographer choreographer, final float time) {
+        synchronized (mSvgLock) {
+            if (activeChoreographer != choreographer) {
+                // Another choreography starts from its own fractions.
+                choreographer.schedule(paths, pathsGeneration);
             }
+            activeChoreographer = choreographer;
+            activeChoreographyTime = time;
+            // The choreography is newer than a progress that was set before it.
+            mProgressDirty = false;
+            markPathsDirtyLocked();
         }
-        if (svgResourceId != 0) {
-            mLoader = new Thread(new Runnable() {
-                @Override
-                public void run() {
-
-                    svgUtils.load(getContext(), svgResourceId);
+        invalidate();
+    }
 
-                    synchronized (mSvgLock) {
-                        width = w - getPaddingLeft() - getPaddingRight();
-                        height = h - getPaddingTop() - getPaddingBottom();
-                        paths = svgUtils.getPathsForViewport(width, height);
-                        updatePathsPhaseLocked();
-                    }
-                }
-            }, "SVG Loader");
-            mLoader.start();
+    /**
+     * Runs the action now if the paths are ready, or on the main thread once the svg is loaded.
+     *
+     * @param action The action to be run.
+     */
+    void runWhenPathsReady(final Runnable action) {
+        final boolean ready;
+        synchronized (mSvgLock) {
+            ready = svgResourceId == 0 || svgPathsLoaded;
+            if (!ready && !pendingUntilLoaded.contains(action)) {
+                pendingUntilLoaded.add(action);
+            }
+        }
+        if (ready) {
+            action.run();
         }
     }
 
-    @Override
-    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+    /**
+     * Removes an action that waits for the paths to be loaded.
+     *
+     * @param action The action to be removed.
+     * @return If the action was waiting.
+     */
+    boolean cancelWhenPathsReady(final Runnable action) {
+        synchronized (mSvgLock) {
+            return pendingUntilLoaded.remove(action);
+        }
+    }
+
+    /**
+     * @param action The action to be checked.
+     * @return If the action waits for the paths to be loaded.
+     */
+    boolean isWaitingForPaths(final Runnable action) {
+        synchronized (mSvgLock) {
+            return pendingUntilLoaded.contains(action);
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        final PathViewMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.beginFrame();
+        }
+
+        final QualityGovernor governor = qualityGovernor;
+        final long frameStart = governor != null ? System.nanoTime() : 0;
+        final int level = governor != null ? governor.getLevel() : QualityGovernor.LEVEL_FULL;
+        if (level != mQualityLevel) {
+            onQualityLevelChanged(level);
+        }
+
+        final int count = tileCache != null ? drawTiles(canvas, level, metrics)
+                : drawOffscreen(canvas, level, metrics);
+        if (fillRevealMode != FILL_REVEAL_NONE && fillRevealFraction > 0f) {
+            if (metrics != null) {
+                metrics.begin(PathViewMetrics.STAGE_FILL);
+            }
+            drawFillReveal(canvas);
+            if (metrics != null) {
+                metrics.end(PathViewMetrics.STAGE_FILL);
+            }
+        }
+
+        if (governor != null) {
+            governor.onFrame(System.nanoTime() - frameStart);
+        }
+
+        if (metrics != null) {
+            metrics.endFrame(count, tileCache != null ? tileCache.getByteCount()
+                    : mTempBitmap.getRowBytes() * mTempBitmap.getHeight());
+            if (metricsListener != null) {
+                metricsListener.onFrameMetrics(metrics);
+            }
+            metrics.resetProgress();
+        }
+    }
+
+    /**
+     * Renders the paths and the fill into one offscreen bitmap and draws it to the canvas.
+     *
+     * @param canvas  Draw to this canvas.
+     * @param level   The quality level of the frame.
+     * @param metrics The metrics of the frame, or null.
+     * @return The number of paths.
+     */
+    private int drawOffscreen(final Canvas canvas, final int level,
+                              final PathViewMetrics metrics) {
+        final float renderScale = level >= QualityGovernor.LEVEL_REDUCED_RESOLUTION
+                ? this.renderScale * REDUCED_RENDER_SCALE : this.renderScale;
+        final Bitmap.Config config = getOffscreenConfig();
+        final int bitmapWidth = Math.max(1, (int) Math.ceil(canvas.getWidth() * renderScale));
+        final int bitmapHeight = Math.max(1, (int) Math.ceil(canvas.getHeight() * renderScale));
+        final boolean reused = mTempBitmap != null && mTempBitmap.getWidth() == bitmapWidth
+                && mTempBitmap.getHeight() == bitmapHeight && mTempBitmap.getConfig() == config;
+        if (!reused) {
+            if (mTempBitmap != null) {
+                mTempBitmap.recycle();
+            }
+            mTempBitmap = Bitmap.createBitmap(bitmapWidth, bitmapHeight, config);
+            mTempCanvas = new Canvas(mTempBitmap);
+        }
+
+        final int count;
+        synchronized (mSvgLock) {
+            count = paths.size();
+            final int step = getFrameCacheStepLocked(level, renderScale);
+            Bitmap frame = step >= 0 ? mFrameCache.get(step) : null;
+            if (frame == null) {
+                renderOffscreenLocked(renderScale, level, metrics);
+                frame = mTempBitmap;
+                if (step >= 0) {
+                    final Bitmap copy = mFrameCache.obtain(bitmapWidth, bitmapHeight, config);
+                    copy.eraseColor(0);
+                    mFrameCacheCanvas.setBitmap(copy);
+                    mFrameCacheCanvas.drawBitmap(mTempBitmap, 0, 0, null);
+                    mFrameCache.put(step, copy);
+                }
+            }
+            if (metrics != null) {
+                metrics.begin(PathViewMetrics.STAGE_BLIT);
+            }
+
+            final Paint blitPaint;
+            if (config == Bitmap.Config.ALPHA_8) {
+                // A mask is drawn with the color of the paint, so it needs no recolor pass.
+                mMaskPaint.setColor(0xff000000 | (isSolidColor() ? fillColor : paint.getColor()));
+                blitPaint = mMaskPaint;
+            } else {
+                blitPaint = renderScale == 1f ? null : mBlitPaint;
+            }
+            if (renderScale == 1f) {
+                canvas.drawBitmap(frame, 0, 0, blitPaint);
+            } else {
+                mBlitRect.set(0, 0, canvas.getWidth(), canvas.getHeight());
+                canvas.drawBitmap(frame, null, mBlitRect, blitPaint);
+            }
+            if (metrics != null) {
+                metrics.end(PathViewMetrics.STAGE_BLIT);
+            }
+        }
+        if (metrics != null) {
+            metrics.recordCache(reused);
+        }
+        return count;
+    }
+
+    /**
+     * Renders the fill and the paths into the offscreen bitmap. Must be called with the path lock
+     * held.
+     *
+     * @param renderScale The scale of the offscreen bitmap.
+     * @param level       The quality level of the frame.
+     * @param metrics     The metrics of the frame, or null.
+     */
+    private void renderOffscreenLocked(final float renderScale, final int level,
+                                       final PathViewMetrics metrics) {
+        trimPathsIfDirtyLocked();
+        mTempBitmap.eraseColor(0);
+        // The fill and the paths that are not animated come from the static layer.
+        final boolean layered = mStaticPathCount > 0 && !isMorphingLocked();
+        if (metrics != null) {
+            metrics.begin(PathViewMetrics.STAGE_FILL);
+        }
+        if (layered) {
+            mTempCanvas.drawBitmap(updateStaticLayerLocked(renderScale, level), 0, 0, null);
+        }
+        mTempCanvas.save();
+        mTempCanvas.scale(renderScale, renderScale);
+        mTempCanvas.translate(getPaddingLeft(), getPaddingTop());
+        if (!layered) {
+            fill(mTempCanvas);
+        }
+        if (metrics != null) {
+            metrics.end(PathViewMetrics.STAGE_FILL);
+            metrics.begin(PathViewMetrics.STAGE_PATHS);
+        }
+        final int count = paths.size();
+        final boolean aliasInProgress = level >= QualityGovernor.LEVEL_NO_ANTI_ALIAS;
+        if (!mViewportIdentity) {
+            mTempCanvas.save();
+            mTempCanvas.concat(mViewportMatrix);
+        }
+        int drawn = 0;
+        if (isMorphingLocked()) {
+            // The morph stands in for the paths, it only interpolates the paired points.
+            mMorph.interpolate(morphFraction, mMorphPath);
+            drawPath(mTempCanvas, mMorphPath, paint, aliasInProgress && morphFraction < 1f);
+            drawn = 1;
+        } else {
+            for (int i = 0; i < count; i++) {
+                final SvgUtils.SvgPath svgPath = paths.get(i);
+                final Path path = svgPath.path;
+                if (path == null || (layered && !svgPath.animated)) {
+                    continue;
+                }
+                drawn++;
+                final Paint paint1 = naturalColors ? svgPath.paint : paint;
+                drawPath(mTempCanvas, path, paint1,
+                        aliasInProgress && svgPath.isInProgress());
+            }
+        }
+        if (!mViewportIdentity) {
+            mTempCanvas.restore();
+        }
+        if (metrics != null) {
+            metrics.end(PathViewMetrics.STAGE_PATHS);
+            metrics.addDrawPathCalls(drawn);
+            metrics.begin(PathViewMetrics.STAGE_FILL);
+        }
+
+        fillAfter(mTempCanvas);
+        if (metrics != null) {
+            metrics.end(PathViewMetrics.STAGE_FILL);
+        }
+
+        mTempCanvas.restore();
+
+        if (metrics != null) {
+            metrics.begin(PathViewMetrics.STAGE_RECOLOR);
+        }
+        applySolidColor(mTempBitmap);
+        if (metrics != null) {
+            metrics.end(PathViewMetrics.STAGE_RECOLOR);
+        }
+    }
+
+    /**
+     * Draws the revealed part of the fill layer over the paths. The layer is only rendered when
+     * the drawing state changes, a frame of the reveal draws it with an alpha or a clip.
+     *
+     * @param canvas Draw to this canvas.
+     */
+    private void drawFillReveal(final Canvas canvas) {
+        final Bitmap layer;
+        synchronized (mSvgLock) {
+            if (svgResourceId == 0 || isMorphingLocked()) {
+                return;
+            }
+            layer = updateFillLayerLocked(canvas.getWidth(), canvas.getHeight());
+        }
+        mRevealRect.set(0, 0, canvas.getWidth(), canvas.getHeight());
+        if (fillRevealMode == FILL_REVEAL_FADE) {
+            mRevealPaint.setAlpha(Math.round(255 * fillRevealFraction));
+            canvas.drawBitmap(layer, null, mRevealRect, mRevealPaint);
+        } else {
+            mRevealPaint.setAlpha(255);
+            canvas.save();
+            canvas.clipRect(0, 0, canvas.getWidth() * fillRevealFraction, canvas.getHeight());
+            canvas.drawBitmap(layer, null, mRevealRect, mRevealPaint);
+            canvas.restore();
+        }
+    }
+
+    /**
+     * Renders the svg into the fill layer if the drawing state changed since it was rendered.
+     * The fill color is applied to the layer once. Must be called with the path lock held.
+     *
+     * @param viewWidth  The width of the view.
+     * @param viewHeight The height of the view.
+     * @return The fill layer, at the resolution of the offscreen buffer.
+     */
+    private Bitmap updateFillLayerLocked(final int viewWidth, final int viewHeight) {
+        final int layerWidth = Math.max(1, (int) Math.ceil(viewWidth * renderScale));
+        final int layerHeight = Math.max(1, (int) Math.ceil(viewHeight * renderScale));
+        final int[] state = mFillLayerState;
+        state[0] = fillColor;
+        state[1] = svgResourceId;
+        state[2] = System.identityHashCode(svgUtils);
+        state[3] = layerWidth;
+        state[4] = layerHeight;
+        state[5] = width;
+        state[6] = height;
+        state[7] = Float.floatToIntBits(renderScale);
+        state[8] = Float.floatToIntBits(paint.getStrokeWidth());
+        state[9] = getPaddingLeft() * 31 + getPaddingTop();
+        state[10] = svgUtils.isDocumentLoaded() ? 1 : 0;
+        final Canvas layerCanvas = mFillLayer.update(state, layerWidth, layerHeight,
+                Bitmap.Config.ARGB_8888);
+        if (layerCanvas != null) {
+            layerCanvas.save();
+            layerCanvas.scale(renderScale, renderScale);
+            layerCanvas.translate(getPaddingLeft(), getPaddingTop());
+            svgUtils.drawSvgAfter(layerCanvas, width, height);
+            layerCanvas.restore();
+            if (fillColor != Color.argb(0, 0, 0, 0)) {
+                recolor(mFillLayer.getBitmap(), fillColor);
+            }
+        }
+        return mFillLayer.getBitmap();
+    }
+
+    /**
+     * Renders the fill and the paths that are not animated into the static layer if the drawing
+     * state changed since it was rendered. Must be called with the path lock held.
+     *
+     * @param renderScale The scale of the offscreen bitmap.
+     * @param level       The quality level of the frame.
+     * @return The static layer, the size of the offscreen bitmap.
+     */
+    private Bitmap updateStaticLayerLocked(final float renderScale, final int level) {
+        final boolean fillShown = fill
+                && (level < QualityGovernor.LEVEL_NO_FILL || getDrawnProgress() >= 1f);
+        final int[] state = mStaticLayerState;
+        state[0] = paint.getColor();
+        state[1] = Float.floatToIntBits(paint.getStrokeWidth());
+        state[2] = (naturalColors ? 1 : 0) | (fillShown ? 2 : 0)
+                | (svgUtils.isDocumentLoaded() ? 4 : 0);
+        state[3] = pathsGeneration;
+        state[4] = mSelectorVersion;
+        state[5] = mTempBitmap.getWidth();
+        state[6] = mTempBitmap.getHeight();
+        state[7] = mTempBitmap.getConfig().ordinal();
+        state[8] = Float.floatToIntBits(mViewportScale);
+        state[9] = Float.floatToIntBits(renderScale);
+        state[10] = getPaddingLeft() * 31 + getPaddingTop();
+        final Canvas layerCanvas = mStaticLayer.update(state, mTempBitmap.getWidth(),
+                mTempBitmap.getHeight(), mTempBitmap.getConfig());
+        if (layerCanvas != null) {
+            layerCanvas.save();
+            layerCanvas.scale(renderScale, renderScale);
+            layerCanvas.translate(getPaddingLeft(), getPaddingTop());
+            fill(layerCanvas);
+            if (!mViewportIdentity) {
+                layerCanvas.concat(mViewportMatrix);
+            }
+            final int count = paths.size();
+            for (int i = 0; i < count; i++) {
+                final SvgUtils.SvgPath svgPath = paths.get(i);
+                if (!svgPath.animated && svgPath.path != null) {
+                    drawPath(layerCanvas, svgPath.path,
+                            naturalColors ? svgPath.paint : paint, false);
+                }
+            }
+            layerCanvas.restore();
+        }
+        return mStaticLayer.getBitmap();
+    }
+
+    /**
+     * Renders the svg at the size of the view into the fill layer of the tiles if the drawing
+     * state changed since it was rendered, so the svg is not rendered again for every dirty
+     * tile. Must be called with the path lock held.
+     *
+     * @param viewWidth  The width of the view.
+     * @param viewHeight The height of the view.
+     * @param config     The config of the tiles.
+     * @return The fill layer of the tiles.
+     */
+    private Bitmap updateTileFillLayerLocked(final int viewWidth, final int viewHeight,
+                                             final Bitmap.Config config) {
+        final int[] state = mTileFillState;
+        state[0] = svgResourceId;
+        state[1] = System.identityHashCode(svgUtils);
+        state[2] = viewWidth;
+        state[3] = viewHeight;
+        state[4] = width;
+        state[5] = height;
+        state[6] = Float.floatToIntBits(paint.getStrokeWidth());
+        state[7] = getPaddingLeft();
+        state[8] = getPaddingTop();
+        state[9] = config.ordinal();
+        state[10] = svgUtils.isDocumentLoaded() ? 1 : 0;
+        final Canvas layerCanvas = mTileFillLayer.update(state, Math.max(1, viewWidth),
+                Math.max(1, viewHeight), config);
+        if (layerCanvas != null) {
+            layerCanvas.save();
+            layerCanvas.translate(getPaddingLeft(), getPaddingTop());
+            svgUtils.drawSvgAfter(layerCanvas, width, height);
+            layerCanvas.restore();
+        }
+        return mTileFillLayer.getBitmap();
+    }
+
+    /**
+     * Finds the step of the quantized progress whose frame can be cached. The cached frames are
+     * dropped if the drawing state changed. Must be called with the path lock held.
+     *
+     * @param level       The quality level of the frame.
+     * @param renderScale The scale of the offscreen bitmap.
+     * @return The step, or -1 if the frame must not be cached.
+     */
+    private int getFrameCacheStepLocked(final int level, final float renderScale) {
+        applyProgressLocked();
+        if (mFrameCache == null || activeChoreographer != null || isMorphingLocked()
+                || (svgResourceId != 0 && !mPathsComplete)) {
+            return -1;
+        }
+        final int[] state = mFrameState;
+        state[0] = paint.getColor();
+        state[1] = Float.floatToIntBits(paint.getStrokeWidth());
+        state[2] = fillColor;
+        state[3] = (naturalColors ? 1 : 0) | (fill ? 2 : 0) | (fillAfter ? 4 : 0)
+                | (svgUtils.isDocumentLoaded() ? 8 : 0);
+        state[4] = level;
+        state[5] = mTempBitmap.getWidth();
+        state[6] = mTempBitmap.getHeight();
+        state[7] = mTempBitmap.getConfig().ordinal();
+        state[8] = pathsGeneration;
+        state[9] = Float.floatToIntBits(mViewportScale);
+        state[10] = Float.floatToIntBits(renderScale);
+        state[11] = getPaddingLeft() * 31 + getPaddingTop();
+        state[12] = mSelectorVersion;
+        state[13] = fillRevealMode;
+        mFrameCache.updateState(state);
+        // The end has its own frame, it is the only one with the fill after.
+        return progress >= 1f ? progressSteps + 1 : Math.round(progress * progressSteps);
+    }
+
+    /**
+     * Renders the tiles under the paths that changed since the last frame and draws all the
+     * tiles to the canvas. The tiles are rendered at the full resolution of the view.
+     *
+     * @param canvas  Draw to this canvas.
+     * @param level   The quality level of the frame.
+     * @param metrics The metrics of the frame, or null.
+     * @return The number of paths.
+     */
+    private int drawTiles(final Canvas canvas, final int level, final PathViewMetrics metrics) {
+        final TileCache tiles = tileCache;
+        final Bitmap.Config config = getOffscreenConfig();
+        final int count;
+        synchronized (mSvgLock) {
+            trimPathsIfDirtyLocked();
+            tiles.setSize(canvas.getWidth(), canvas.getHeight(), config);
+            count = paths.size();
+            mTileMatrix.set(mViewportMatrix);
+            mTileMatrix.postTranslate(getPaddingLeft(), getPaddingTop());
+            tiles.assignPaths(paths, pathsGeneration, mTileMatrix, paint.getStrokeWidth());
+
+            final boolean morphing = isMorphingLocked();
+            final int[] state = mTileState;
+            state[0] = paint.getColor();
+            state[1] = Float.floatToIntBits(paint.getStrokeWidth());
+            state[2] = fillColor;
+            state[3] = (naturalColors ? 1 : 0) | (fill ? 2 : 0) | (fillAfter ? 4 : 0)
+                    | (getDrawnProgress() >= 1f ? 8 : 0) | (morphing ? 16 : 0)
+                    | (svgUtils.isDocumentLoaded() ? 32 : 0);
+            state[4] = level;
+            state[5] = getWidth();
+            state[6] = getHeight();
+            state[7] = getPaddingLeft();
+            state[8] = getPaddingTop();
+            state[9] = Float.floatToIntBits(mViewportScale);
+            tiles.updateState(state);
+            if (morphing) {
+                // The morph moves everywhere at once.
+                tiles.invalidateAll();
+                mMorph.interpolate(morphFraction, mMorphPath);
+            }
+            tiles.markChangedPaths(paths);
+            final boolean fillShown = isFillShownLocked();
+            final boolean fillAfterShown = isFillAfterShownLocked();
+            final Bitmap fillLayer = fillShown || fillAfterShown
+                    ? updateTileFillLayerLocked(canvas.getWidth(), canvas.getHeight(), config)
+                    : null;
+
+            if (metrics != null) {
+                metrics.begin(PathViewMetrics.STAGE_PATHS);
+            }
+            final boolean aliasInProgress = level >= QualityGovernor.LEVEL_NO_ANTI_ALIAS;
+            int drawn = 0;
+            final int tileCount = tiles.getTileCount();
+            for (int t = 0; t < tileCount; t++) {
+                final TileCache.Tile tile = tiles.getTile(t);
+                if (!tile.dirty) {
+                    continue;
+                }
+                tile.dirty = false;
+                if (tile.pathCount == 0 && !morphing && fillLayer == null) {
+                    // Nothing is drawn into the tile, its bitmap goes back to the pool.
+                    tiles.releaseBitmap(tile);
+                    continue;
+                }
+                tiles.obtainBitmap(tile);
+                final Canvas tileCanvas = tile.canvas;
+                tile.bitmap.eraseColor(0);
+                if (fillShown) {
+                    // The tile canvas clips the fill layer to the part under the tile.
+                    tileCanvas.drawBitmap(fillLayer, -tile.left, -tile.top, null);
+                }
+                tileCanvas.save();
+                tileCanvas.translate(getPaddingLeft() - tile.left, getPaddingTop() - tile.top);
+                if (!mViewportIdentity) {
+                    tileCanvas.save();
+                    tileCanvas.concat(mViewportMatrix);
+                }
+                if (morphing) {
+                    drawPath(tileCanvas, mMorphPath, paint, aliasInProgress && morphFraction < 1f);
+                    drawn++;
+                } else {
+                    for (int i = 0; i < tile.pathCount; i++) {
+                        final SvgUtils.SvgPath svgPath = paths.get(tile.paths[i]);
+                        final Path path = svgPath.path;
+                        if (path == null) {
+                            continue;
+                        }
+                        drawn++;
+                        final Paint paint1 = naturalColors ? svgPath.paint : paint;
+                        drawPath(tileCanvas, path, paint1,
+                                aliasInProgress && svgPath.isInProgress());
+                    }
+                }
+                if (!mViewportIdentity) {
+                    tileCanvas.restore();
+                }
+                tileCanvas.restore();
+                if (fillAfterShown) {
+                    tileCanvas.drawBitmap(fillLayer, -tile.left, -tile.top, null);
+                }
+                applySolidColor(tile.bitmap);
+            }
+            if (metrics != null) {
+                metrics.end(PathViewMetrics.STAGE_PATHS);
+                metrics.addDrawPathCalls(drawn);
+                metrics.begin(PathViewMetrics.STAGE_BLIT);
+            }
+
+            final Paint blitPaint;
+            if (config == Bitmap.Config.ALPHA_8) {
+                mMaskPaint.setColor(0xff000000 | (isSolidColor() ? fillColor : paint.getColor()));
+                blitPaint = mMaskPaint;
+            } else {
+                blitPaint = null;
+            }
+            for (int t = 0; t < tileCount; t++) {
+                final TileCache.Tile tile = tiles.getTile(t);
+                if (tile.bitmap != null && !canvas.quickReject(tile.left, tile.top, tile.left + TileCache.TILE_SIZE,
+                        tile.top + TileCache.TILE_SIZE, Canvas.EdgeType.BW)) {
+                    canvas.drawBitmap(tile.bitmap, tile.left, tile.top, blitPaint);
+                }
+            }
+            if (metrics != null) {
+                metrics.end(PathViewMetrics.STAGE_BLIT);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Draws a path with the stroke width kept in pixels under the viewport matrix.
+     *
+     * @param canvas Draw to this canvas.
+     * @param path   The path to be drawn.
+     * @param paint1 The paint of the path.
+     * @param alias  If the path is drawn without anti-aliasing.
+     */
+    private void drawPath(final Canvas canvas, final Path path, final Paint paint1,
+                          final boolean alias) {
+        final boolean aliased = alias && paint1.isAntiAlias();
+        if (aliased || !mViewportIdentity) {
+            // The stroke keeps its width in pixels when the viewport matrix scales. The view
+            // paint can change, the interned paints are copied again only for other overrides.
+            if (paint1 != mDrawPaintSource || paint1 == paint || aliased != mDrawPaintAliased
+                    || mViewportScale != mDrawPaintScale) {
+                mDrawPaint.set(paint1);
+                if (aliased) {
+                    mDrawPaint.setAntiAlias(false);
+                }
+                mDrawPaint.setStrokeWidth(paint1.getStrokeWidth() / mViewportScale);
+                mDrawPaintSource = paint1;
+                mDrawPaintAliased = aliased;
+                mDrawPaintScale = mViewportScale;
+            }
+            canvas.drawPath(path, mDrawPaint);
+        } else {
+            canvas.drawPath(path, paint1);
+        }
+    }
+
+    /**
+     * @return If the morph is drawn instead of the paths. Must be called with the path lock held.
+     */
+    private boolean isMorphingLocked() {
+        return mMorph != null && morphFraction > 0f;
+    }
+
+    /**
+     * If there is svg , the user called setFillAfter(true) and the progress is finished.
+     *
+     * @param canvas Draw to this canvas.
+     */
+    private void fillAfter(final Canvas canvas) {
+        if (isFillAfterShownLocked()) {
+            svgUtils.drawSvgAfter(canvas, width, height);
+        }
+    }
+
+    /**
+     * @return If the svg is drawn over the paths.
+     */
+    private boolean isFillAfterShownLocked() {
+        return svgResourceId != 0 && fillAfter && !isMorphingLocked()
+                && Math.abs(progress - 1f) < 0.00000001;
+    }
+
+    /**
+     * @return How far the drawing is, from the percentage or the active choreography.
+     */
+    private float getDrawnProgress() {
+        return activeChoreographer != null ? activeChoreographyTime : progress;
+    }
+
+    /**
+     * Applies a new quality level of the governor.
+     *
+     * @param level The new level.
+     */
+    private void onQualityLevelChanged(final int level) {
+        mQualityLevel = level;
+        synchronized (mSvgLock) {
+            coarseProgress = level >= QualityGovernor.LEVEL_COARSE_PROGRESS;
+            markPathsDirtyLocked();
+        }
+    }
+
+    /**
+     * If there is svg , the user called setFill(true).
+     *
+     * @param canvas Draw to this canvas.
+     */
+    private void fill(final Canvas canvas) {
+        if (isFillShownLocked()) {
+            svgUtils.drawSvgAfter(canvas, width, height);
+        }
+    }
+
+    /**
+     * @return If the svg is drawn under the paths.
+     */
+    private boolean isFillShownLocked() {
+        if (mQualityLevel >= QualityGovernor.LEVEL_NO_FILL && getDrawnProgress() < 1f) {
+            return false;
+        }
+        return svgResourceId != 0 && fill && !isMorphingLocked();
+    }
+
+    /**
+     * If fillColor had value before then we replace untransparent pixels of bitmap by solid color
+     *
+     * @param bitmap Draw to this canvas.
+     */
+    private void applySolidColor(final Bitmap bitmap) {
+        if (!isSolidColor() || bitmap == null || bitmap.getConfig() == Bitmap.Config.ALPHA_8) {
+            return;
+        }
+        recolor(bitmap, fillColor);
+    }
+
+    /**
+     * Replaces the color of the untransparent pixels of a bitmap and keeps their alpha.
+     *
+     * @param bitmap The bitmap, ARGB_8888.
+     * @param color  The new color.
+     */
+    private void recolor(final Bitmap bitmap, final int color) {
+        final int bitmapWidth = bitmap.getWidth();
+        final int bitmapHeight = bitmap.getHeight();
+        final int size = bitmapWidth * bitmapHeight;
+        if (mPixels == null || mPixels.length < size) {
+            mPixels = new int[size];
+        }
+        final int[] pixels = mPixels;
+        bitmap.getPixels(pixels, 0, bitmapWidth, 0, 0, bitmapWidth, bitmapHeight);
+        final int rgb = color & 0x00ffffff;
+        for (int i = 0; i < size; i++) {
+            final int argb = pixels[i];
+            if (argb != 0) {
+                pixels[i] = (argb & 0xff000000) | rgb;
+            }
+        }
+        bitmap.setPixels(pixels, 0, bitmapWidth, 0, 0, bitmapWidth, bitmapHeight);
+    }
+
+    /**
+     * Parses the svg document on the load queue if the fill needs it and the load of the paths
+     * did not parse it, e.g. when the fill is turned on after the paths were loaded.
+     */
+    private void loadDocumentIfNeeded() {
+        if (svgResourceId == 0 || !needsDocument() || svgUtils.isDocumentLoaded()) {
+            return;
+        }
+        final SvgUtils utils = svgUtils;
+        mDocumentLoader = new SvgLoadQueue.Task(getLoadPriority()) {
+            @Override
+            public void run() {
+                utils.loadDocument();
+                postInvalidate();
+            }
+        };
+        submitLoad(mDocumentLoader);
+    }
+
+    /**
+     * Computes the morph on the load queue if a morph svg is set and the loaded paths have no
+     * morph yet, e.g. when the morph svg is set after the paths were loaded.
+     */
+    private void loadMorphIfNeeded() {
+        final int load;
+        final List<SvgUtils.SvgPath> source;
+        final int extractedResource;
+        final int extractedWidth;
+        final int extractedHeight;
+        final float extractedStrokeWidth;
+        synchronized (mSvgLock) {
+            if (morphSvgResourceId == 0 || !mPathsComplete || mMorph != null) {
+                // A running load computes the morph when it is done.
+                return;
+            }
+            source = new ArrayList<>(paths);
+            load = mLoadGeneration;
+            extractedResource = mExtractedResource;
+            extractedWidth = mExtractedWidth;
+            extractedHeight = mExtractedHeight;
+            extractedStrokeWidth = mExtractedStrokeWidth;
+        }
+        if (mMorphLoader != null) {
+            SvgLoadQueue.cancel(mMorphLoader);
+            mDetachedLoads.remove(mMorphLoader);
+        }
+        mMorphLoader = new SvgLoadQueue.Task(getLoadPriority()) {
+            @Override
+            public void run() {
+                loadMorph(load, source, extractedResource, extractedWidth, extractedHeight,
+                        extractedStrokeWidth);
+            }
+        };
+        submitLoad(mMorphLoader);
+    }
+
+    /**
+     * Takes the waiting loads of the view out of the queue. If one of them already runs, the
+     * view gets new utils, the running load keeps the old ones until it notices it was dropped,
+     * so two loads never share the state of an extraction.
+     */
+    private void dropLoads() {
+        final boolean running = cancelLoad(mLoader) | cancelLoad(mDocumentLoader);
+        mLoader = null;
+        mDocumentLoader = null;
+        if (mMeasureLoader != null) {
+            // A running measure only fills the shared geometry.
+            SvgLoadQueue.cancel(mMeasureLoader);
+            mMeasureLoader = null;
+        }
+        mDetachedLoads.clear();
+        if (mMorphLoader != null) {
+            // The morph has its own utils, a running one only notices the new load.
+            SvgLoadQueue.cancel(mMorphLoader);
+            mMorphLoader = null;
+        }
+        if (running) {
+            svgUtils = new SvgUtils(paint);
+        }
+    }
+
+    /**
+     * Takes a load out of the queue if it did not start.
+     *
+     * @param task The load, or null.
+     * @return True if the load could not be taken out because it runs.
+     */
+    private boolean cancelLoad(final SvgLoadQueue.Task task) {
+        return task != null && !SvgLoadQueue.cancel(task) && !task.done
+                && !mDetachedLoads.contains(task);
+    }
+
+    /**
+     * Submits a load to the queue, or keeps it until the view is attached.
+     *
+     * @param task The load.
+     */
+    private void submitLoad(final SvgLoadQueue.Task task) {
+        if (getWindowToken() != null) {
+            SvgLoadQueue.submit(task);
+        } else {
+            mDetachedLoads.add(task);
+        }
+    }
+
+    /**
+     * @return If the svg document is rendered, not only its paths.
+     */
+    private boolean needsDocument() {
+        return fill || fillAfter || fillRevealMode != FILL_REVEAL_NONE;
+    }
+
+    /**
+     * @return If everything drawn is replaced by the fill color.
+     */
+    private boolean isSolidColor() {
+        return fill && fillColor != Color.argb(0, 0, 0, 0);
+    }
+
+    /**
+     * @return The config of the offscreen bitmap. A mask is only used when everything drawn has
+     * a single color, otherwise the requested mask falls back to ARGB_8888.
+     */
+    private Bitmap.Config getOffscreenConfig() {
+        if (offscreenConfig == Bitmap.Config.ALPHA_8
+                && (isSolidColor() || (!naturalColors && !fill && !fillAfter))) {
+            return Bitmap.Config.ALPHA_8;
+        }
+        return Bitmap.Config.ARGB_8888;
+    }
+
+    @Override
+    protected void onSizeChanged(final int w, final int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mSizeChangedNanos = System.nanoTime();
+        if (svgResourceId != 0) {
+            startLoad(w, h);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mScrolledOff = false;
+        setAnimationsPaused(false);
+        getViewTreeObserver().addOnScrollChangedListener(mScrollListener);
+        final int priority = getLoadPriority();
+        for (final SvgLoadQueue.Task task : mDetachedLoads) {
+            task.priority = priority;
+            SvgLoadQueue.submit(task);
+        }
+        mDetachedLoads.clear();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        setAnimationsPaused(true);
+        getViewTreeObserver().removeOnScrollChangedListener(mScrollListener);
+        // The loads that did not start wait until the view is attached again.
+        detachLoad(mLoader);
+        detachLoad(mDocumentLoader);
+        detachLoad(mMorphLoader);
+        detachLoad(mMeasureLoader);
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * Takes a load out of the queue if it did not start, to submit it on attach.
+     *
+     * @param task The load, or null.
+     */
+    private void detachLoad(final SvgLoadQueue.Task task) {
+        if (task != null && SvgLoadQueue.cancel(task)) {
+            mDetachedLoads.add(task);
+        }
+    }
+
+    /**
+     * Pauses the running animations while no part of the view is on the screen, and resumes
+     * them when it is scrolled back.
+     */
+    private void updateScrolledOff() {
+        final boolean scrolledOff = !getGlobalVisibleRect(mVisibleRect);
+        if (scrolledOff != mScrolledOff) {
+            mScrolledOff = scrolledOff;
+            setAnimationsPaused(scrolledOff);
+        }
+    }
+
+    @Override
+    protected void onVisibilityChanged(final View changedView, final int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        updateLoadPriority();
+    }
+
+    /**
+     * @return The priority of a load of the view in the load queue.
+     */
+    private int getLoadPriority() {
+        if (mLoadPriorityBumped) {
+            return SvgLoadQueue.PRIORITY_BUMPED;
+        }
+        return getWindowToken() != null && isShown() && getGlobalVisibleRect(mVisibleRect)
+                ? SvgLoadQueue.PRIORITY_VISIBLE : SvgLoadQueue.PRIORITY_HIDDEN;
+    }
+
+    /**
+     * Updates the priority of the load of the view if it did not finish.
+     */
+    private void updateLoadPriority() {
+        if (mLoader != null && !mLoader.done) {
+            mLoader.priority = getLoadPriority();
+        }
+    }
+
+    /**
+     * Shows the paths of the svg for the size of the view. Cached paths are shown at once,
+     * otherwise they are loaded in the background. A load that is still running is dropped.
+     *
+     * @param w The width of the view.
+     * @param h The height of the view.
+     */
+    private void startLoad(final int w, final int h) {
+        final int viewportWidth = w - getPaddingLeft() - getPaddingRight();
+        final int viewportHeight = h - getPaddingTop() - getPaddingBottom();
+        final int svgResource = svgResourceId;
+        final float strokeWidth = paint.getStrokeWidth();
+        final SvgPathCache.Entry cached =
+                SvgPathCache.get(svgResource, viewportWidth, viewportHeight, strokeWidth);
+        final PathViewMetrics metrics = mMetrics;
+        if (metrics != null) {
+            metrics.recordCache(cached != null);
+        }
+
+        dropLoads();
+        final SvgUtils utils = svgUtils;
+        utils.load(getContext(), svgResource);
+        // Paths that are only drawn complete are not measured.
+        utils.setMeasuredIds(animatedIds);
+
+        final int load;
+        final boolean resized;
+        synchronized (mSvgLock) {
+            load = ++mLoadGeneration;
+            width = viewportWidth;
+            height = viewportHeight;
+            resized = cached == null && svgPathsLoaded && mViewBox != null
+                    && mExtractedResource == svgResource && mExtractedStrokeWidth == strokeWidth;
+            if (cached != null) {
+                releasePathsLocked();
+                for (SvgUtils.SvgPath source : cached.paths) {
+                    paths.add(new SvgUtils.SvgPath(source));
+                }
+                pathsGeneration++;
+                svgPathsLoaded = true;
+                setExtractedLocked(svgResource, strokeWidth, cached.viewBox);
+                markPathsDirtyLocked();
+                if (metrics != null) {
+                    metrics.recordLoad(System.nanoTime() - mSizeChangedNanos, paths.size(), 0);
+                }
+            } else if (resized) {
+                updateViewportMatrixLocked();
+            }
+        }
+        if (resized) {
+            // Only the size changed, the loaded paths are mapped to the new viewport. The
+            // dropped load may still have owed the document or the morph.
+            invalidate();
+            loadDocumentIfNeeded();
+            loadMorphIfNeeded();
+            return;
+        }
+        if (cached != null) {
+            invalidate();
+            if (metrics != null) {
+                post(mReportLoad);
+            }
+            mRunPendingActions.run();
+            if (!needsDocument() && morphSvgResourceId == 0) {
+                return;
+            }
+        }
+
+        // Read on the UI thread, the task only sees the value of the submit.
+        final boolean document = needsDocument();
+        mLoader = new SvgLoadQueue.Task(getLoadPriority()) {
+            /**
+             * The number of contours of the loaded paths, for the metrics.
+             */
+            private int contours;
+
+            @Override
+            public void run() {
+                if (cached != null) {
+                    // Only the document for rendering the svg and the morph are missing.
+                    if (document) {
+                        utils.loadDocument();
+                        postInvalidate();
+                    }
+                    loadMorph(load, Arrays.asList(cached.paths), svgResource, viewportWidth,
+                            viewportHeight, strokeWidth);
+                    return;
+                }
+                if (metrics != null) {
+                    metrics.begin(PathViewMetrics.STAGE_LOAD);
+                }
+                if (document) {
+                    // Parse the document here, not on the first draw.
+                    utils.loadDocument();
+                }
+
+                final boolean progressive;
+                final List<SvgUtils.SvgPath> loading = new ArrayList<>();
+                contours = 0;
+                synchronized (mSvgLock) {
+                    if (load != mLoadGeneration) {
+                        return;
+                    }
+                    // Show the paths while they are extracted only on the first load, a
+                    // resize keeps the old paths until the new ones are complete.
+                    progressive = !svgPathsLoaded;
+                    if (progressive) {
+                        releasePathsLocked();
+                        paths = loading;
+                        pathsGeneration++;
+                    }
+                }
+
+                final long extractStart = System.nanoTime();
+                final List<SvgUtils.SvgPath> extracted = utils.getPathsForViewport(
+                        viewportWidth, viewportHeight, progressive ? new SvgUtils.PathsListener() {
+                            @Override
+                            public void onPathsExtracted(List<SvgUtils.SvgPath> chunk) {
+                                final boolean first;
+                                synchronized (mSvgLock) {
+                                    if (load != mLoadGeneration) {
+                                        return;
+                                    }
+                                    first = !svgPathsLoaded;
+                                    if (metrics != null) {
+                                        contours += countContours(chunk);
+                                    }
+                                    loading.addAll(chunk);
+                                    pathsGeneration++;
+                                    svgPathsLoaded = true;
+                                    markPathsDirtyLocked();
+                                }
+                                postInvalidate();
+                                if (first) {
+                                    post(mRunPendingActions);
+                                }
+                            }
+
+                            @Override
+                            public void onPathsDiscarded() {
+                                synchronized (mSvgLock) {
+                                    if (load != mLoadGeneration) {
+                                        return;
+                                    }
+                                    loading.clear();
+                                    contours = 0;
+                                    pathsGeneration++;
+                                }
+                                postInvalidate();
+                            }
+                        } : null);
+                final long extractEnd = System.nanoTime();
+                // The morph reads its own copy, the list may become the paths of the view.
+                final List<SvgUtils.SvgPath> morphSource = new ArrayList<>(extracted);
+
+                synchronized (mSvgLock) {
+                    if (load != mLoadGeneration) {
+                        return;
+                    }
+                    if (!progressive) {
+                        if (metrics != null) {
+                            contours = countContours(extracted);
+                        }
+                        releasePathsLocked();
+                        paths = extracted;
+                        pathsGeneration++;
+                        markPathsDirtyLocked();
+                    }
+                    svgPathsLoaded = true;
+                    setExtractedLocked(svgResource, strokeWidth, utils.getViewBox());
+                    SvgPathCache.put(svgResource, viewportWidth, viewportHeight, strokeWidth,
+                            extracted, mViewBox);
+                    if (metrics != null) {
+                        metrics.recordLoad(System.nanoTime() - mSizeChangedNanos,
+                                paths.size(), contours);
+                        metrics.recordLoadBreakdown(
+                                extractEnd - extractStart - utils.getMeasureNanos(),
+                                utils.getMeasureNanos(), utils.getMeasuredCount(),
+                                utils.getDeferredCount());
+                    }
+                }
+                postInvalidate();
+                if (metrics != null) {
+                    metrics.end(PathViewMetrics.STAGE_LOAD);
+                    post(mReportLoad);
+                }
+                post(mRunPendingActions);
+                loadMorph(load, morphSource, svgResource, viewportWidth, viewportHeight,
+                        strokeWidth);
+            }
+        };
+        mLoadPriorityBumped = false;
+        submitLoad(mLoader);
+    }
+
+    /**
+     * Computes the morph of the loaded paths into the morph svg, or takes it from the cache.
+     * Runs on a background thread.
+     *
+     * @param load        The generation of the load the paths belong to.
+     * @param source      The loaded paths, they are only read.
+     * @param svgResource The raw resource id of the loaded svg.
+     * @param width       The width of the viewport the paths were extracted for.
+     * @param height      The height of the viewport the paths were extracted for.
+     * @param strokeWidth The stroke width the paths were scaled with.
+     */
+    private void loadMorph(final int load, final List<SvgUtils.SvgPath> source,
+                           final int svgResource, final int width, final int height,
+                           final float strokeWidth) {
+        final int morphResource;
+        synchronized (mSvgLock) {
+            morphResource = morphSvgResourceId;
+            if (load != mLoadGeneration || morphResource == 0 || mMorph != null) {
+                return;
+            }
+        }
+        PathMorph morph = SvgPathCache.getMorph(svgResource, morphResource, width, height,
+                strokeWidth);
+        if (morph == null) {
+            final SvgUtils target = new SvgUtils(paint);
+            target.load(getContext(), morphResource);
+            morph = SvgUtils.createMorph(source, target.getPathsForViewport(width, height));
+            SvgPathCache.putMorph(svgResource, morphResource, width, height, strokeWidth, morph);
+        }
+        synchronized (mSvgLock) {
+            if (load != mLoadGeneration || morphResource != morphSvgResourceId) {
+                return;
+            }
+            mMorph = morph;
+        }
+        postInvalidate();
+    }
+
+    /**
+     * Records the svg and the viewport the current paths were extracted for. Must be called with
+     * the path lock held.
+     *
+     * @param svgResource The raw resource id of the svg.
+     * @param strokeWidth The stroke width the paths were scaled with.
+     * @param viewBox     The viewBox of the svg, or null if it is not known.
+     */
+    private void setExtractedLocked(final int svgResource, final float strokeWidth,
+                                    final RectF viewBox) {
+        mExtractedResource = svgResource;
+        mExtractedWidth = width;
+        mExtractedHeight = height;
+        mExtractedStrokeWidth = strokeWidth;
+        mViewBox = viewBox;
+        mPathsComplete = true;
+        mViewportMatrix.reset();
+        mViewportScale = 1f;
+        mViewportIdentity = true;
+    }
+
+    /**
+     * Computes the matrix that maps the extracted paths to the current viewport, the same way a
+     * new extraction would scale and center them. Must be called with the path lock held.
+     */
+    private void updateViewportMatrixLocked() {
+        mViewportScale = SvgUtils.getViewportMatrix(mViewBox, mExtractedWidth, mExtractedHeight,
+                width, height, mExtractedStrokeWidth, mViewportMatrix);
+        mViewportIdentity = mViewportMatrix.isIdentity();
+    }
+
+    /**
+     * Gives the Path objects of the svg paths back to the pool and empties the list. Must be
+     * called with the path lock held.
+     */
+    private void releasePathsLocked() {
+        final int count = paths.size();
+        for (int i = 0; i < count; i++) {
+            paths.get(i).release();
+        }
+        paths.clear();
+        activeChoreographer = null;
+        mPathsComplete = false;
+        mMorph = null;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
         if (svgResourceId != 0) {
             int widthSize = MeasureSpec.getSize(widthMeasureSpec);
@@ -375,6 +1967,7 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
      */
     public void setFillAfter(final boolean fillAfter) {
         this.fillAfter = fillAfter;
+        loadDocumentIfNeeded();
     }
     /**
      * If the real svg need to be drawn without the path animation.
@@ -383,6 +1976,7 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
      */
     public void setFill(final boolean fill) {
         this.fill = fill;
+        loadDocumentIfNeeded();
     }
     /**
      * The color for drawing svg in that color if the color be not transparent
@@ -399,6 +1993,345 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
         naturalColors = true;
     }
 
+    /**
+     * Set the resolution of the offscreen buffer the paths and the fill are rendered to,
+     * relative to the view. It is scaled up with filtering, so 0.5f renders a quarter of the
+     * pixels and takes a quarter of the memory.
+     *
+     * @param renderScale - The scale, in (0,1].
+     */
+    public void setRenderScale(final float renderScale) {
+        if (renderScale <= 0.0f || renderScale > 1.0f) {
+            throw new IllegalArgumentException("renderScale not in (0.0f, 1.0f]");
+        }
+        this.renderScale = renderScale;
+        invalidate();
+    }
+
+    /**
+     * Get the resolution of the offscreen buffer relative to the view.
+     *
+     * @return The render scale.
+     */
+    public float getRenderScale() {
+        return renderScale;
+    }
+
+    /**
+     * Set the config of the offscreen buffer. ALPHA_8 stores only a mask, a quarter of the
+     * memory, and is drawn with the fill color or the path color without a recolor pass. It is
+     * only used while everything drawn has a single color, i.e. without natural colors or with
+     * a fill color.
+     *
+     * @param config - Bitmap.Config.ARGB_8888 or Bitmap.Config.ALPHA_8.
+     */
+    public void setOffscreenConfig(final Bitmap.Config config) {
+        if (config != Bitmap.Config.ARGB_8888 && config != Bitmap.Config.ALPHA_8) {
+            throw new IllegalArgumentException("offscreen config must be ARGB_8888 or ALPHA_8");
+        }
+        offscreenConfig = config;
+        invalidate();
+    }
+
+    /**
+     * Set which parts of the svg are animated, by the id of an element or of a group it is in,
+     * e.g. the check mark inside a static circle. The other paths are always drawn complete and
+     * are rendered once into a cached layer together with the fill, so a frame only draws the
+     * animated paths.
+     *
+     * @param ids - The ids of the animated elements and groups, or none to animate all paths.
+     */
+    public void setAnimatedIds(final String... ids) {
+        synchronized (mSvgLock) {
+            animatedIds = ids == null || ids.length == 0
+                    ? null : new HashSet<>(Arrays.asList(ids));
+            mSelectorVersion++;
+            mSelectorGeneration = -1;
+            mTrimmedProgress = -1f;
+            if (animatedIds == null) {
+                mStaticLayer.recycle();
+            }
+            markPathsDirtyLocked();
+        }
+        invalidate();
+    }
+
+    /**
+     * Snaps the progress to a number of steps and keeps the rendered frame of every step, so a
+     * progress that is scrubbed back and forth, e.g. by a ViewPager transition or a pull to
+     * refresh, is drawn from the cache instead of trimming the paths again. The least recently
+     * used frames are dropped above the memory budget. The frames are not cached while tiled,
+     * choreographed or morphing.
+     *
+     * @param steps    - The number of steps, or 0 for a continuous progress without the cache.
+     * @param maxBytes - The memory budget of the cached frames.
+     */
+    public void setProgressSteps(final int steps, final int maxBytes) {
+        if (steps < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("steps and maxBytes must not be negative");
+        }
+        synchronized (mSvgLock) {
+            // Recycled under the lock, a frame is never drawn from a recycled cache.
+            if (mFrameCache != null) {
+                mFrameCache.recycle();
+                mFrameCache = null;
+            }
+            progressSteps = steps;
+            if (steps > 0) {
+                mFrameCache = new ProgressFrameCache(maxBytes);
+            }
+            mTrimmedProgress = -1f;
+            markPathsDirtyLocked();
+        }
+        invalidate();
+    }
+
+    /**
+     * @return The number of steps the progress is snapped to, or 0.
+     */
+    public int getProgressSteps() {
+        return progressSteps;
+    }
+
+    /**
+     * @return The ratio of frames drawn from the progress cache, or 0 without the cache.
+     */
+    public float getProgressCacheHitRate() {
+        return mFrameCache != null ? mFrameCache.getHitRate() : 0f;
+    }
+
+    /**
+     * @return The memory used by the frames in the progress cache.
+     */
+    public int getProgressCacheBytes() {
+        return mFrameCache != null ? mFrameCache.getByteCount() : 0;
+    }
+
+    /**
+     * Set if the offscreen buffer is split into tiles, for views that are too large for one
+     * bitmap, e.g. full screen posters or zoomable maps. Only the tiles under paths that changed
+     * since the last frame are rendered again, so the cost follows the changed area. The tiles
+     * are always rendered at the full resolution of the view.
+     *
+     * @param tiledRendering - If the buffer is tiled.
+     */
+    public void setTiledRendering(final boolean tiledRendering) {
+        if (tiledRendering == (tileCache != null)) {
+            return;
+        }
+        if (tiledRendering) {
+            tileCache = new TileCache();
+            if (mTempBitmap != null) {
+                mTempBitmap.recycle();
+                mTempBitmap = null;
+                mTempCanvas = null;
+            }
+            mStaticLayer.recycle();
+        } else {
+            tileCache.recycle();
+            tileCache = null;
+            mTileFillLayer.recycle();
+        }
+        invalidate();
+    }
+
+    /**
+     * @return If the offscreen buffer is split into tiles.
+     */
+    public boolean isTiledRendering() {
+        return tileCache != null;
+    }
+
+    /**
+     * Set a governor that lowers the rendering quality while drawing takes longer than its
+     * budget, and raises it again when there is headroom.
+     *
+     * @param qualityGovernor - The governor or null to always draw at full quality.
+     */
+    public void setQualityGovernor(final QualityGovernor qualityGovernor) {
+        this.qualityGovernor = qualityGovernor;
+        invalidate();
+    }
+
+    /**
+     * Get the quality governor.
+     *
+     * @return The governor or null.
+     */
+    public QualityGovernor getQualityGovernor() {
+        return qualityGovernor;
+    }
+
+    /**
+     * Set a listener for the timings and counters of each frame and load. The listener is called
+     * on the main thread. Nothing is measured while there is no listener.
+     *
+     * @param metricsListener - The listener or null to stop measuring.
+     */
+    public void setMetricsListener(final MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+        updateMetrics();
+    }
+
+    /**
+     * If the stages of drawing and loading are emitted as {@link android.os.Trace} sections for
+     * systrace and perfetto. Only works from API 18.
+     *
+     * @param traceEnabled - If the trace sections are emitted.
+     */
+    public void setTraceEnabled(final boolean traceEnabled) {
+        this.traceEnabled = traceEnabled;
+        updateMetrics();
+    }
+
+    /**
+     * Creates or drops the metrics depending on what is enabled.
+     */
+    private void updateMetrics() {
+        if (metricsListener == null && !traceEnabled) {
+            mMetrics = null;
+            return;
+        }
+        final PathViewMetrics metrics = mMetrics != null ? mMetrics : new PathViewMetrics();
+        metrics.configure(metricsListener != null, traceEnabled);
+        mMetrics = metrics;
+    }
+
+    /**
+     * Counts the contours of the paths.
+     *
+     * @param paths The paths to count.
+     * @return The number of contours.
+     */
+    private static int countContours(final List<SvgUtils.SvgPath> paths) {
+        int contours = 0;
+        for (int i = 0; i < paths.size(); i++) {
+            contours += paths.get(i).getContourCount();
+        }
+        return contours;
+    }
+
+    /**
+     * Set the svg the paths are morphed into. The contours of both svgs are paired in the
+     * background once the paths are loaded, and the morph is cached for other views.
+     *
+     * @param svgResource - The resource id of the raw svg, or 0 for no morph.
+     */
+    public void setMorphSvgResource(final int svgResource) {
+        synchronized (mSvgLock) {
+            if (morphSvgResourceId == svgResource) {
+                return;
+            }
+            morphSvgResourceId = svgResource;
+            mMorph = null;
+        }
+        invalidate();
+        loadMorphIfNeeded();
+    }
+
+    /**
+     * @return The svg the paths are morphed into, or 0.
+     */
+    public int getMorphSvgResource() {
+        return morphSvgResourceId;
+    }
+
+    /**
+     * Animate this property. It is how far the paths are morphed into the morph svg, 0 shows the
+     * trimmed paths and 1 the morph svg. The morph is drawn with the path color.
+     * It must be [0,1].
+     *
+     * @param fraction float the fraction of the morph.
+     */
+    public void setMorphFraction(final float fraction) {
+        if (fraction < 0.0f || fraction > 1.0f) {
+            throw new IllegalArgumentException("setMorphFraction not between 0.0f and 1.0f");
+        }
+        morphFraction = fraction;
+        invalidate();
+    }
+
+    /**
+     * @return How far the paths are morphed into the morph svg.
+     */
+    public float getMorphFraction() {
+        return morphFraction;
+    }
+
+    /**
+     * Set how the fill of the svg is revealed over the paths, e.g. after the paths are traced.
+     * The svg is rendered once into a cached layer, a frame of the reveal only draws the layer
+     * with an alpha or a clip. The fill color is applied to the layer if it is set.
+     *
+     * @param mode - FILL_REVEAL_NONE, FILL_REVEAL_FADE or FILL_REVEAL_WIPE.
+     * @see #getFillRevealAnimator()
+     */
+    public void setFillRevealMode(final int mode) {
+        if (mode < FILL_REVEAL_NONE || mode > FILL_REVEAL_WIPE) {
+            throw new IllegalArgumentException("Unknown fill reveal mode " + mode);
+        }
+        fillRevealMode = mode;
+        if (mode == FILL_REVEAL_NONE) {
+            mFillLayer.recycle();
+        }
+        loadDocumentIfNeeded();
+        invalidate();
+    }
+
+    /**
+     * @return How the fill of the svg is revealed.
+     */
+    public int getFillRevealMode() {
+        return fillRevealMode;
+    }
+
+    /**
+     * Animate this property. It is how far the fill is revealed, 0 shows only the paths and 1
+     * the whole fill. It must be [0,1].
+     *
+     * @param fraction float the fraction of the reveal.
+     */
+    public void setFillRevealFraction(final float fraction) {
+        if (fraction < 0.0f || fraction > 1.0f) {
+            throw new IllegalArgumentException("setFillRevealFraction not between 0.0f and 1.0f");
+        }
+        fillRevealFraction = fraction;
+        invalidate();
+    }
+
+    /**
+     * @return How far the fill is revealed.
+     */
+    public float getFillRevealFraction() {
+        return fillRevealFraction;
+    }
+
+    /**
+     * Animator for revealing the fill of the svg.
+     *
+     * @return The AnimatorBuilder to build the animation.
+     * @see #setFillRevealMode(int)
+     */
+    public AnimatorBuilder getFillRevealAnimator() {
+        if (fillRevealBuilder == null) {
+            fillRevealBuilder = new AnimatorBuilder(this, "fillRevealFraction");
+        }
+        return fillRevealBuilder;
+    }
+
+    /**
+     * Animator for morphing the paths into the morph svg.
+     *
+     * @return The AnimatorBuilder to build the animation.
+     * @see #setMorphSvgResource(int)
+     */
+    public AnimatorBuilder getMorphAnimator() {
+        if (morphBuilder == null) {
+            morphBuilder = new AnimatorBuilder(this, "morphFraction");
+        }
+        return morphBuilder;
+    }
+
     /**
      * Animator for the paths of the view.
      *
@@ -420,7 +2353,19 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
         if (animatorSetBuilder == null) {
             animatorSetBuilder = new AnimatorSetBuilder(this);
         }
-        return animatorSetBuilder;
+        return animatorSetBuilder;
+    }
+
+    /**
+     * Animator for the paths of the view with custom order, stagger and overlap.
+     *
+     * @return The ChoreographyBuilder to build the animation.
+     */
+    public ChoreographyBuilder getChoreographedPathAnimator() {
+        if (choreographyBuilder == null) {
+            choreographyBuilder = new ChoreographyBuilder(this);
+        }
+        return choreographyBuilder;
     }
 
     /**
@@ -469,12 +2414,140 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
     }
 
     /**
-     * Set the svg resource id.
+     * Set the svg resource id. It is loaded on the next size change, use {@link #bind(int)} to
+     * show another svg in a view that is already laid out.
      *
      * @param svgResource - The resource id of the raw svg.
      */
     public void setSvgResource(int svgResource) {
+        synchronized (mSvgLock) {
+            if (svgResourceId != svgResource) {
+                svgPathsLoaded = false;
+            }
+        }
+        svgResourceId = svgResource;
+    }
+
+    /**
+     * Binds the view to an svg, e.g. when a recycled view of a list shows another item. The paths
+     * are shown at once if they were loaded before for the same size, otherwise they are loaded
+     * in the background. The buffers and path objects of the view are reused. Start the
+     * animators after binding, they wait for the paths.
+     *
+     * @param svgResource - The resource id of the raw svg.
+     */
+    public void bind(final int svgResource) {
+        unbind();
         svgResourceId = svgResource;
+        if (getWidth() > 0 && getHeight() > 0) {
+            mSizeChangedNanos = System.nanoTime();
+            startLoad(getWidth(), getHeight());
+        }
+    }
+
+    /**
+     * Releases the svg of the view: the animations are cancelled, a running load is dropped and
+     * the paths are kept for reuse by the next bind.
+     */
+    public void unbind() {
+        if (animatorBuilder != null) {
+            animatorBuilder.cancel();
+        }
+        if (animatorSetBuilder != null) {
+            animatorSetBuilder.cancel();
+        }
+        if (choreographyBuilder != null) {
+            choreographyBuilder.cancel();
+        }
+        if (morphBuilder != null) {
+            morphBuilder.cancel();
+        }
+        if (fillRevealBuilder != null) {
+            fillRevealBuilder.cancel();
+        }
+        dropLoads();
+        synchronized (mSvgLock) {
+            mLoadGeneration++;
+            releasePathsLocked();
+            pathsGeneration++;
+            svgPathsLoaded = false;
+            pendingUntilLoaded.clear();
+        }
+        svgResourceId = 0;
+        invalidate();
+    }
+
+    /**
+     * Drops the paths of all the svg that were loaded, e.g. when the memory is low.
+     */
+    public static void clearSvgCache() {
+        SvgPathCache.clear();
+    }
+
+    /**
+     * Get the memory used by the cached geometry of an svg, shared by all the views that show it.
+     *
+     * @param svgResource - The raw resource id of the svg.
+     * @return The number of bytes, or 0 if the svg is not cached.
+     */
+    public static int getSvgMemoryBytes(final int svgResource) {
+        return SvgPathCache.getByteCount(svgResource);
+    }
+
+    /**
+     * Loads the svg of this view before the loads of the other views, e.g. for the hero icon of
+     * a screen. A load that waits in the queue is moved ahead, and so is the next load.
+     */
+    public void bumpLoadPriority() {
+        mLoadPriorityBumped = true;
+        if (mLoader != null && !mLoader.done) {
+            mLoader.priority = SvgLoadQueue.PRIORITY_BUMPED;
+        }
+    }
+
+    /**
+     * Set how many svg are loaded at the same time by all the views. The views that are on
+     * screen are loaded first, the views that are off screen wait and the loads of detached
+     * views are taken out of the queue until they are attached again.
+     *
+     * @param maxLoads - The number of loads, at least 1.
+     */
+    public static void setMaxConcurrentLoads(final int maxLoads) {
+        if (maxLoads < 1) {
+            throw new IllegalArgumentException("maxLoads must be at least 1");
+        }
+        SvgLoadQueue.setMaxConcurrent(maxLoads);
+    }
+
+    /**
+     * @return The number of svg that are loaded at the same time.
+     */
+    public static int getMaxConcurrentLoads() {
+        return SvgLoadQueue.getMaxConcurrent();
+    }
+
+    /**
+     * Pauses the running animations while the view is detached or scrolled off, and resumes
+     * them.
+     *
+     * @param paused If the animations must be paused.
+     */
+    private void setAnimationsPaused(final boolean paused) {
+        if (animatorBuilder != null) {
+            animatorBuilder.setPaused(paused);
+        }
+        if (animatorSetBuilder != null) {
+            animatorSetBuilder.choreography.setPaused(paused);
+        }
+        if (choreographyBuilder != null) {
+            choreographyBuilder.setPaused(paused);
+        }
+        if (morphBuilder != null) {
+            morphBuilder.setPaused(paused);
+        }
+        if (fillRevealBuilder != null) {
+            fillRevealBuilder.setPaused(paused);
+        }
     }
 
     /**
@@ -493,51 +2566,346 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
          * The delay before the animation.
          */
         private int delay = 0;
+        /**
+         * How many times the animation is repeated.
+         */
+        private int repeatCount = 0;
+        /**
+         * What the animation does when it repeats.
+         */
+        private int repeatMode = ValueAnimator.RESTART;
         /**
          * ObjectAnimator that constructs the animation.
          */
         private final ObjectAnimator anim;
         /**
-         * Listener called before the animation.
+         * Listener called before the animation.
+         */
+        private ListenerStart listenerStart;
+        /**
+         * Listener after the animation.
+         */
+        private ListenerEnd animationEnd;
+        /**
+         * Animation listener.
+         */
+        private PathViewAnimatorListener pathViewAnimatorListener;
+        /**
+         * If the animation was paused while it was running.
+         */
+        private boolean paused;
+        /**
+         * The play time the animation was paused at.
+         */
+        private long pausedPlayTime;
+        /**
+         * True while pausing or resuming, so the listeners are not called.
+         */
+        private boolean pausing;
+
+        /**
+         * Default constructor.
+         *
+         * @param pathView The view that must be animated.
+         */
+        public AnimatorBuilder(final PathView pathView) {
+            this((PathAnimatable) pathView);
+        }
+
+        /**
+         * Constructor for animating another property of the view.
+         *
+         * @param pathView     The view that must be animated.
+         * @param propertyName The property, from 0 to 1.
+         */
+        AnimatorBuilder(final PathView pathView, final String propertyName) {
+            anim = ObjectAnimator.ofFloat(pathView, propertyName, 0.0f, 1.0f);
+        }
+
+        /**
+         * Constructor for animating the percentage of a view or a drawable.
+         *
+         * @param target The view or the drawable that must be animated.
+         */
+        AnimatorBuilder(final PathAnimatable target) {
+            anim = ObjectAnimator.ofFloat(target, "percentage", 0.0f, 1.0f);
+        }
+
+        /**
+         * Set the duration of the animation.
+         *
+         * @param duration - The duration of the animation.
+         * @return AnimatorBuilder.
+         */
+        public AnimatorBuilder duration(final int duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        /**
+         * Set the Interpolator.
+         *
+         * @param interpolator - Interpolator.
+         * @return AnimatorBuilder.
+         */
+        public AnimatorBuilder interpolator(final Interpolator interpolator) {
+            this.interpolator = interpolator;
+            return this;
+        }
+
+        /**
+         * The delay before the animation.
+         *
+         * @param delay - int the delay
+         * @return AnimatorBuilder.
+         */
+        public AnimatorBuilder delay(final int delay) {
+            this.delay = delay;
+            return this;
+        }
+
+        /**
+         * Set a listener before the start of the animation.
+         *
+         * @param listenerStart an interface called before the animation
+         * @return AnimatorBuilder.
+         */
+        public AnimatorBuilder listenerStart(final ListenerStart listenerStart) {
+            this.listenerStart = listenerStart;
+            if (pathViewAnimatorListener == null) {
+                pathViewAnimatorListener = new PathViewAnimatorListener();
+                anim.addListener(pathViewAnimatorListener);
+            }
+            return this;
+        }
+
+        /**
+         * Set a listener after of the animation.
+         *
+         * @param animationEnd an interface called after the animation
+         * @return AnimatorBuilder.
+         */
+        public AnimatorBuilder listenerEnd(final ListenerEnd animationEnd) {
+            this.animationEnd = animationEnd;
+            if (pathViewAnimatorListener == null) {
+                pathViewAnimatorListener = new PathViewAnimatorListener();
+                anim.addListener(pathViewAnimatorListener);
+            }
+            return this;
+        }
+
+        /**
+         * Set how many times the animation is repeated.
+         *
+         * @param repeatCount - The count or ValueAnimator.INFINITE.
+         * @return AnimatorBuilder.
+         */
+        public AnimatorBuilder repeatCount(final int repeatCount) {
+            this.repeatCount = repeatCount;
+            return this;
+        }
+
+        /**
+         * Set what the animation does when it repeats.
+         *
+         * @param repeatMode - ValueAnimator.RESTART or ValueAnimator.REVERSE.
+         * @return AnimatorBuilder.
+         */
+        public AnimatorBuilder repeatMode(final int repeatMode) {
+            this.repeatMode = repeatMode;
+            return this;
+        }
+
+        /**
+         * Starts the animation.
+         */
+        public void start() {
+            paused = false;
+            applySettings();
+            anim.start();
+        }
+
+        /**
+         * Plays the animation backwards, from where it is now or from the end.
+         */
+        public void reverse() {
+            paused = false;
+            applySettings();
+            anim.reverse();
+        }
+
+        /**
+         * Cancels the animation, leaving the paths where they are.
+         */
+        public void cancel() {
+            paused = false;
+            anim.cancel();
+        }
+
+        /**
+         * Pauses the running animation, or resumes it from where it was paused.
+         *
+         * @param paused If the animation must be paused.
+         */
+        void setPaused(final boolean paused) {
+            if (paused == this.paused || (paused && !anim.isRunning())) {
+                return;
+            }
+            this.paused = paused;
+            pausing = true;
+            if (paused) {
+                pausedPlayTime = anim.getCurrentPlayTime();
+                anim.cancel();
+            } else {
+                applySettings();
+                anim.setStartDelay(0);
+                anim.start();
+                anim.setCurrentPlayTime(pausedPlayTime);
+            }
+            pausing = false;
+        }
+
+        /**
+         * Moves the animation to a point without playing it. The point is in the first
+         * iteration, which plays forward also with ValueAnimator.REVERSE, the repeats are not
+         * part of the fraction.
+         *
+         * @param fraction - The point of the first iteration, in [0,1].
+         */
+        public void seek(final float fraction) {
+            applySettings();
+            anim.setCurrentPlayTime((long) (fraction * duration));
+        }
+
+        /**
+         * @return If the animation is running.
+         */
+        public boolean isRunning() {
+            return anim.isRunning();
+        }
+
+        /**
+         * Applies the settings of the builder to the animator.
+         */
+        private void applySettings() {
+            anim.setDuration(duration);
+            anim.setInterpolator(interpolator);
+            anim.setStartDelay(delay);
+            anim.setRepeatCount(repeatCount);
+            anim.setRepeatMode(repeatMode);
+        }
+
+        /**
+         * Animation listener to be able to provide callbacks for the caller.
+         */
+        private class PathViewAnimatorListener implements Animator.AnimatorListener {
+
+            @Override
+            public void onAnimationStart(Animator animation) {
+                if (listenerStart != null && !pausing) 
+                    listenerStart.onAnimationStart();
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                if (animationEnd != null && !pausing) 
+                    animationEnd.onAnimationEnd();
+            }
+
+            @Override
+            public void onAnimationCancel(Animator animation) {
+
+            }
+
+            @Override
+            public void onAnimationRepeat(Animator animation) {
+
+            }
+        }
+
+        /**
+         * Called when the animation start.
+         */
+        public interface ListenerStart {
+            /**
+             * Called when the path animation start.
+             */
+            void onAnimationStart();
+        }
+
+        /**
+         * Called when the animation end.
+         */
+        public interface ListenerEnd {
+            /**
+             * Called when the path animation end.
+             */
+            void onAnimationEnd();
+        }
+    }
+
+    @Override
+    public void onAnimationStep() {
+        invalidate();
+    }
+
+    /**
+     * Listener for the timings and counters of the view.
+     */
+    public interface MetricsListener {
+
+        /**
+         * Called after every drawn frame.
+         *
+         * @param metrics The metrics of the frame, reused for the next frame.
          */
-        private ListenerStart listenerStart;
+        void onFrameMetrics(PathViewMetrics metrics);
+
         /**
-         * Listener after the animation.
+         * Called after the paths of the svg were loaded.
+         *
+         * @param metrics The metrics with the loader latency and path counts.
          */
-        private ListenerEnd animationEnd;
+        void onLoadMetrics(PathViewMetrics metrics);
+    }
+
+    /**
+     * Object for building the sequential animation of the paths of this view.
+     */
+    public static class AnimatorSetBuilder {
         /**
-         * Animation listener.
+         * The choreography that plays the paths one after the other.
          */
-        private PathViewAnimatorListener pathViewAnimatorListener;
+        private final ChoreographyBuilder choreography;
 
         /**
          * Default constructor.
          *
          * @param pathView The view that must be animated.
          */
-        public AnimatorBuilder(final PathView pathView) {
-            anim = ObjectAnimator.ofFloat(pathView, "percentage", 0.0f, 1.0f);
+        public AnimatorSetBuilder(final PathView pathView) {
+            choreography = new ChoreographyBuilder(pathView);
         }
 
         /**
-         * Set the duration of the animation.
+         * Sets the duration of the whole animation. Every path gets an equal part of it.
          *
          * @param duration - The duration of the animation.
-         * @return AnimatorBuilder.
+         * @return AnimatorSetBuilder.
          */
-        public AnimatorBuilder duration(final int duration) {
-            this.duration = duration;
+        public AnimatorSetBuilder duration(final int duration) {
+            choreography.duration(duration);
             return this;
         }
 
         /**
-         * Set the Interpolator.
+         * Set the Interpolator applied to each of the paths.
          *
          * @param interpolator - Interpolator.
-         * @return AnimatorBuilder.
+         * @return AnimatorSetBuilder.
          */
-        public AnimatorBuilder interpolator(final Interpolator interpolator) {
-            this.interpolator = interpolator;
+        public AnimatorSetBuilder interpolator(final Interpolator interpolator) {
+            choreography.pathInterpolator(interpolator);
             return this;
         }
 
@@ -545,10 +2913,10 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
          * The delay before the animation.
          *
          * @param delay - int the delay
-         * @return AnimatorBuilder.
+         * @return AnimatorSetBuilder.
          */
-        public AnimatorBuilder delay(final int delay) {
-            this.delay = delay;
+        public AnimatorSetBuilder delay(final int delay) {
+            choreography.delay(delay);
             return this;
         }
 
@@ -556,14 +2924,10 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
          * Set a listener before the start of the animation.
          *
          * @param listenerStart an interface called before the animation
-         * @return AnimatorBuilder.
+         * @return AnimatorSetBuilder.
          */
-        public AnimatorBuilder listenerStart(final ListenerStart listenerStart) {
-            this.listenerStart = listenerStart;
-            if (pathViewAnimatorListener == null) {
-                pathViewAnimatorListener = new PathViewAnimatorListener();
-                anim.addListener(pathViewAnimatorListener);
-            }
+        public AnimatorSetBuilder listenerStart(final AnimatorBuilder.ListenerStart listenerStart) {
+            choreography.listenerStart(listenerStart);
             return this;
         }
 
@@ -571,101 +2935,91 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
          * Set a listener after of the animation.
          *
          * @param animationEnd an interface called after the animation
-         * @return AnimatorBuilder.
+         * @return AnimatorSetBuilder.
          */
-        public AnimatorBuilder listenerEnd(final ListenerEnd animationEnd) {
-            this.animationEnd = animationEnd;
-            if (pathViewAnimatorListener == null) {
-                pathViewAnimatorListener = new PathViewAnimatorListener();
-                anim.addListener(pathViewAnimatorListener);
-            }
+        public AnimatorSetBuilder listenerEnd(final AnimatorBuilder.ListenerEnd animationEnd) {
+            choreography.listenerEnd(animationEnd);
             return this;
         }
 
         /**
-         * Starts the animation.
+         * Set how many times the animation is repeated.
+         *
+         * @param repeatCount - The count or ValueAnimator.INFINITE.
+         * @return AnimatorSetBuilder.
          */
-        public void start() {
-            anim.setDuration(duration);
-            anim.setInterpolator(interpolator);
-            anim.setStartDelay(delay);
-            anim.start();
+        public AnimatorSetBuilder repeatCount(final int repeatCount) {
+            choreography.repeatCount(repeatCount);
+            return this;
         }
 
         /**
-         * Animation listener to be able to provide callbacks for the caller.
+         * Set what the animation does when it repeats.
+         *
+         * @param repeatMode - ValueAnimator.RESTART or ValueAnimator.REVERSE.
+         * @return AnimatorSetBuilder.
          */
-        private class PathViewAnimatorListener implements Animator.AnimatorListener {
-
-            @Override
-            public void onAnimationStart(Animator animation) {
-                if (listenerStart != null) 
-                    listenerStart.onAnimationStart();
-            }
-
-            @Override
-            public void onAnimationEnd(Animator animation) {
-                if (animationEnd != null) 
-                    animationEnd.onAnimationEnd();
-            }
-
-            @Override
-            public void onAnimationCancel(Animator animation) {
-
-            }
+        public AnimatorSetBuilder repeatMode(final int repeatMode) {
+            choreography.repeatMode(repeatMode);
+            return this;
+        }
 
-            @Override
-            public void onAnimationRepeat(Animator animation) {
+        /**
+         * Starts the animation, as soon as the paths are loaded.
+         */
+        public void start() {
+            choreography.start();
+        }
 
-            }
+        /**
+         * Plays the animation backwards, as soon as the paths are loaded.
+         */
+        public void reverse() {
+            choreography.reverse();
         }
 
         /**
-         * Called when the animation start.
+         * Cancels the animation, leaving the paths where they are.
          */
-        public interface ListenerStart {
-            /**
-             * Called when the path animation start.
-             */
-            void onAnimationStart();
+        public void cancel() {
+            choreography.cancel();
         }
 
         /**
-         * Called when the animation end.
+         * Moves the animation to a point of its first iteration without playing it, once the
+         * paths are loaded.
+         *
+         * @param fraction - The point of the first iteration, in [0,1].
          */
-        public interface ListenerEnd {
-            /**
-             * Called when the path animation end.
-             */
-            void onAnimationEnd();
+        public void seek(final float fraction) {
+            choreography.seek(fraction);
         }
-    }
 
-    @Override
-    public void onAnimationStep() {
-        invalidate();
+        /**
+         * @return If the animation is running or waiting for the paths to be loaded.
+         */
+        public boolean isRunning() {
+            return choreography.isRunning();
+        }
     }
 
     /**
-     * Object for building the sequential animation of the paths of this view.
+     * Object for building an animation of the paths of this view with custom order, stagger,
+     * overlap and per path durations. All the paths are driven by a single animator.
      */
-    public static class AnimatorSetBuilder {
+    public static class ChoreographyBuilder {
         /**
          * Duration of the animation.
          */
         private int duration = 1000;
         /**
-         * Interpolator for the time of the animation.
+         * Interpolator for the time of the whole animation.
          */
         private Interpolator interpolator;
         /**
          * The delay before the animation.
          */
         private int delay = 0;
-        /**
-         * List of ObjectAnimator that constructs the animations of each path.
-         */
-        private final List<Animator> animators = new ArrayList<>();
         /**
          * Listener called before the animation.
          */
@@ -677,76 +3031,223 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
         /**
          * Animation listener.
          */
-        private AnimatorSetBuilder.PathViewAnimatorListener pathViewAnimatorListener;
+        private ChoreographyBuilder.PathViewAnimatorListener pathViewAnimatorListener;
+        /**
+         * The precomputed timeline of the paths.
+         */
+        private final PathChoreographer choreographer = new PathChoreographer();
+        /**
+         * The single animator that drives the timeline.
+         */
+        private final ValueAnimator animator = ValueAnimator.ofFloat(0.0f, 1.0f);
+        /**
+         * The view that is animated.
+         */
+        private final PathView pathView;
+        /**
+         * How many times the animation is repeated.
+         */
+        private int repeatCount = 0;
+        /**
+         * What the animation does when it repeats.
+         */
+        private int repeatMode = ValueAnimator.RESTART;
+        /**
+         * If the animation was paused while it was running.
+         */
+        private boolean paused;
+        /**
+         * The play time the animation was paused at.
+         */
+        private long pausedPlayTime;
+        /**
+         * True while pausing or resuming, so the listeners are not called.
+         */
+        private boolean pausing;
+        /**
+         * Starts the animator once the paths are loaded.
+         */
+        private final Runnable startAction = new Runnable() {
+            @Override
+            public void run() {
+                applySettings();
+                pathView.setChoreographyProgress(choreographer, 0.0f);
+                animator.start();
+            }
+        };
+        /**
+         * Reverses the animator once the paths are loaded.
+         */
+        private final Runnable reverseAction = new Runnable() {
+            @Override
+            public void run() {
+                applySettings();
+                animator.reverse();
+            }
+        };
         /**
-         * The animator that can animate paths sequentially
+         * The point of the last seek, in [0,1].
          */
-        private AnimatorSet animatorSet = new AnimatorSet();
+        private float seekFraction;
         /**
-         * The list of paths to be animated.
+         * Moves the animator to the point of the last seek once the paths are loaded.
          */
-        private List<SvgUtils.SvgPath> paths;
+        private final Runnable seekAction = new Runnable() {
+            @Override
+            public void run() {
+                applySettings();
+                animator.setCurrentPlayTime((long) (seekFraction * duration));
+            }
+        };
 
         /**
          * Default constructor.
          *
          * @param pathView The view that must be animated.
          */
-        public AnimatorSetBuilder(final PathView pathView) {
-            paths = pathView.paths;
-            for (SvgUtils.SvgPath path : paths) {
-                path.setAnimationStepListener(pathView);
-                ObjectAnimator animation = ObjectAnimator.ofFloat(path, "length", 0.0f, path.getLength());
-                animators.add(animation);
-            }
-            animatorSet.playSequentially(animators);
+        public ChoreographyBuilder(final PathView pathView) {
+            this.pathView = pathView;
+            animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+                @Override
+                public void onAnimationUpdate(ValueAnimator animation) {
+                    pathView.setChoreographyProgress(choreographer,
+                            (Float) animation.getAnimatedValue());
+                }
+            });
         }
 
         /**
-         * Sets the duration of the animation. Since the AnimatorSet sets the duration for each
-         * Animator, we have to divide it by the number of paths.
+         * Set the duration of the whole animation.
          *
          * @param duration - The duration of the animation.
-         * @return AnimatorSetBuilder.
+         * @return ChoreographyBuilder.
          */
-        public AnimatorSetBuilder duration(final int duration) {
-            this.duration = duration / paths.size();
+        public ChoreographyBuilder duration(final int duration) {
+            this.duration = duration;
             return this;
         }
 
         /**
-         * Set the Interpolator.
+         * Set the Interpolator for the whole timeline.
          *
          * @param interpolator - Interpolator.
-         * @return AnimatorSetBuilder.
+         * @return ChoreographyBuilder.
          */
-        public AnimatorSetBuilder interpolator(final Interpolator interpolator) {
+        public ChoreographyBuilder interpolator(final Interpolator interpolator) {
             this.interpolator = interpolator;
             return this;
         }
 
+        /**
+         * Set the Interpolator applied to each of the paths.
+         *
+         * @param interpolator - Interpolator.
+         * @return ChoreographyBuilder.
+         */
+        public ChoreographyBuilder pathInterpolator(final Interpolator interpolator) {
+            choreographer.setPathInterpolator(interpolator);
+            return this;
+        }
+
         /**
          * The delay before the animation.
          *
          * @param delay - int the delay
-         * @return AnimatorSetBuilder.
+         * @return ChoreographyBuilder.
          */
-        public AnimatorSetBuilder delay(final int delay) {
+        public ChoreographyBuilder delay(final int delay) {
             this.delay = delay;
             return this;
         }
 
+        /**
+         * Set the order in which the paths are played.
+         *
+         * @param order - The order of the paths.
+         * @return ChoreographyBuilder.
+         */
+        public ChoreographyBuilder order(final PathChoreographer.Order order) {
+            choreographer.setOrder(order, false);
+            return this;
+        }
+
+        /**
+         * Set the order in which the paths are played, from the last to the first.
+         *
+         * @param order - The order of the paths to be reversed.
+         * @return ChoreographyBuilder.
+         */
+        public ChoreographyBuilder reverseOrder(final PathChoreographer.Order order) {
+            choreographer.setOrder(order, true);
+            return this;
+        }
+
+        /**
+         * Set how much of the previous group is left when the next one starts.
+         *
+         * @param overlap - 0 for sequential, 1 for parallel.
+         * @return ChoreographyBuilder.
+         */
+        public ChoreographyBuilder overlap(final float overlap) {
+            choreographer.setOverlap(overlap);
+            return this;
+        }
+
+        /**
+         * Set the offset between the start of two groups.
+         *
+         * @param stagger - The offset in units of an average path duration.
+         * @return ChoreographyBuilder.
+         */
+        public ChoreographyBuilder stagger(final float stagger) {
+            choreographer.setStagger(stagger);
+            return this;
+        }
+
+        /**
+         * Set how many consecutive paths start together.
+         *
+         * @param groupSize - The size of a group.
+         * @return ChoreographyBuilder.
+         */
+        public ChoreographyBuilder groupSize(final int groupSize) {
+            choreographer.setGroupSize(groupSize);
+            return this;
+        }
+
+        /**
+         * Set how the duration is split between the paths.
+         *
+         * @param durationMode - The duration mode.
+         * @return ChoreographyBuilder.
+         */
+        public ChoreographyBuilder durationMode(final PathChoreographer.DurationMode durationMode) {
+            choreographer.setDurationMode(durationMode);
+            return this;
+        }
+
+        /**
+         * Set the relative duration of each path in document order.
+         *
+         * @param weights - The duration weights of the paths.
+         * @return ChoreographyBuilder.
+         */
+        public ChoreographyBuilder weights(final float... weights) {
+            choreographer.setWeights(weights);
+            return this;
+        }
+
         /**
          * Set a listener before the start of the animation.
          *
          * @param listenerStart an interface called before the animation
-         * @return AnimatorSetBuilder.
+         * @return ChoreographyBuilder.
          */
-        public AnimatorSetBuilder listenerStart(final AnimatorBuilder.ListenerStart listenerStart) {
+        public ChoreographyBuilder listenerStart(final AnimatorBuilder.ListenerStart listenerStart) {
             this.listenerStart = listenerStart;
             if (pathViewAnimatorListener == null) {
                 pathViewAnimatorListener = new PathViewAnimatorListener();
-                animatorSet.addListener(pathViewAnimatorListener);
+                animator.addListener(pathViewAnimatorListener);
             }
             return this;
         }
@@ -755,36 +3256,121 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
          * Set a listener after of the animation.
          *
          * @param animationEnd an interface called after the animation
-         * @return AnimatorSetBuilder.
+         * @return ChoreographyBuilder.
          */
-        public AnimatorSetBuilder listenerEnd(final AnimatorBuilder.ListenerEnd animationEnd) {
+        public ChoreographyBuilder listenerEnd(final AnimatorBuilder.ListenerEnd animationEnd) {
             this.animationEnd = animationEnd;
             if (pathViewAnimatorListener == null) {
                 pathViewAnimatorListener = new PathViewAnimatorListener();
-                animatorSet.addListener(pathViewAnimatorListener);
+                animator.addListener(pathViewAnimatorListener);
             }
             return this;
         }
 
         /**
-         * Starts the animation.
+         * Set how many times the animation is repeated.
+         *
+         * @param repeatCount - The count or ValueAnimator.INFINITE.
+         * @return ChoreographyBuilder.
+         */
+        public ChoreographyBuilder repeatCount(final int repeatCount) {
+            this.repeatCount = repeatCount;
+            return this;
+        }
+
+        /**
+         * Set what the animation does when it repeats.
+         *
+         * @param repeatMode - ValueAnimator.RESTART or ValueAnimator.REVERSE.
+         * @return ChoreographyBuilder.
+         */
+        public ChoreographyBuilder repeatMode(final int repeatMode) {
+            this.repeatMode = repeatMode;
+            return this;
+        }
+
+        /**
+         * Starts the animation. If the svg is still loading, it starts as soon as the paths are
+         * ready.
          */
         public void start() {
-            resetAllPaths();
-            animatorSet.cancel();
-            animatorSet.setDuration(duration);
-            animatorSet.setInterpolator(interpolator);
-            animatorSet.setStartDelay(delay);
-            animatorSet.start();
+            cancel();
+            pathView.runWhenPathsReady(startAction);
+        }
+
+        /**
+         * Plays the animation backwards, from where it is now or from the end. If the svg is
+         * still loading, it starts as soon as the paths are ready.
+         */
+        public void reverse() {
+            paused = false;
+            pathView.cancelWhenPathsReady(startAction);
+            pathView.runWhenPathsReady(reverseAction);
+        }
+
+        /**
+         * Cancels the animation, leaving the paths where they are.
+         */
+        public void cancel() {
+            paused = false;
+            pathView.cancelWhenPathsReady(startAction);
+            pathView.cancelWhenPathsReady(reverseAction);
+            pathView.cancelWhenPathsReady(seekAction);
+            animator.cancel();
         }
 
         /**
-         * Sets the length of all the paths to 0.
+         * Pauses the running animation, or resumes it from where it was paused.
+         *
+         * @param paused If the animation must be paused.
          */
-        private void resetAllPaths() {
-            for (SvgUtils.SvgPath path : paths) {
-                path.setLength(0);
+        void setPaused(final boolean paused) {
+            if (paused == this.paused || (paused && !animator.isRunning())) {
+                return;
             }
+            this.paused = paused;
+            pausing = true;
+            if (paused) {
+                pausedPlayTime = animator.getCurrentPlayTime();
+                animator.cancel();
+            } else {
+                applySettings();
+                animator.setStartDelay(0);
+                animator.start();
+                animator.setCurrentPlayTime(pausedPlayTime);
+            }
+            pausing = false;
+        }
+
+        /**
+         * Moves the animation to a point without playing it. The paths take that point of the
+         * timeline as soon as they are loaded. The point is in the first iteration, which plays
+         * forward also with ValueAnimator.REVERSE, the repeats are not part of the fraction.
+         *
+         * @param fraction - The point of the first iteration, in [0,1].
+         */
+        public void seek(final float fraction) {
+            seekFraction = fraction;
+            pathView.runWhenPathsReady(seekAction);
+        }
+
+        /**
+         * @return If the animation is running or waiting for the paths to be loaded.
+         */
+        public boolean isRunning() {
+            return animator.isRunning() || pathView.isWaitingForPaths(startAction)
+                    || pathView.isWaitingForPaths(reverseAction);
+        }
+
+        /**
+         * Applies the settings of the builder to the animator.
+         */
+        private void applySettings() {
+            animator.setDuration(duration);
+            animator.setInterpolator(interpolator);
+            animator.setStartDelay(delay);
+            animator.setRepeatCount(repeatCount);
+            animator.setRepeatMode(repeatMode);
         }
 
         /**
@@ -794,13 +3380,13 @@ public class PathView extends View implements SvgUtils.AnimationStepListener {
 
             @Override
             public void onAnimationStart(Animator animation) {
-                if (listenerStart != null) 
+                if (listenerStart != null && !pausing)
                     listenerStart.onAnimationStart();
             }
 
             @Override
             public void onAnimationEnd(Animator animation) {
-                if (animationEnd != null) 
+                if (animationEnd != null && !pausing)
                     animationEnd.onAnimationEnd();
             }
 
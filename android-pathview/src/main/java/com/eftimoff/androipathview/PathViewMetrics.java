@@ -0,0 +1,423 @@
+package com.eftimoff.androipathview;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Timings and counters of a PathView. The same object is reused for every report, so copy the
+ * values you want to keep.
+ */
+public class PathViewMetrics {
+    /**
+     * Trimming the paths to the last recorded progress before they are drawn.
+     */
+    public static final int STAGE_PROGRESS = 0;
+    /**
+     * Rendering the svg under and over the paths.
+     */
+    public static final int STAGE_FILL = 1;
+    /**
+     * Drawing the paths.
+     */
+    public static final int STAGE_PATHS = 2;
+    /**
+     * Replacing the colors of the offscreen bitmap.
+     */
+    public static final int STAGE_RECOLOR = 3;
+    /**
+     * Drawing the offscreen bitmap to the view.
+     */
+    public static final int STAGE_BLIT = 4;
+    /**
+     * Loading the svg and extracting its paths.
+     */
+    public static final int STAGE_LOAD = 5;
+    /**
+     * The names of the stages for the trace sections.
+     */
+    private static final String[] SECTION_NAMES = {
+            "PathView#progress", "PathView#fill", "PathView#paths", "PathView#recolor",
+            "PathView#blit", "PathView#load"};
+    /**
+     * The number of stages.
+     */
+    private static final int STAGE_COUNT = SECTION_NAMES.length;
+
+    /**
+     * If the stages are timed for a listener.
+     */
+    private boolean timed;
+    /**
+     * If the stages are emitted as trace sections.
+     */
+    private boolean traced;
+    /**
+     * The start of every running stage.
+     */
+    private final long[] stageStarts = new long[STAGE_COUNT];
+    /**
+     * The duration of every stage of the last frame.
+     */
+    private final long[] stageNanos = new long[STAGE_COUNT];
+    /**
+     * The start of the current frame.
+     */
+    private long frameStart;
+    /**
+     * The duration of the last frame.
+     */
+    private long frameNanos;
+    /**
+     * The number of reported frames.
+     */
+    private long frameCount;
+    /**
+     * The number of drawn paths in the last frame.
+     */
+    private int drawPathCalls;
+    /**
+     * The number of paths trimmed for the last frame.
+     */
+    private int trimmedPaths;
+    /**
+     * The number of recorded progress updates.
+     */
+    private long progressUpdates;
+    /**
+     * The number of progress updates that replaced another one before it was drawn.
+     */
+    private long coalescedUpdates;
+    /**
+     * The number of paths of the view.
+     */
+    private int pathCount;
+    /**
+     * The number of contours of all the paths of the view.
+     */
+    private int segmentCount;
+    /**
+     * The size of the offscreen bitmap in bytes.
+     */
+    private int offscreenBitmapBytes;
+    /**
+     * The time from the size change until the paths were ready.
+     */
+    private long loaderLatencyNanos;
+    /**
+     * The time the last load spent capturing the geometry of the paths.
+     */
+    private long loadCaptureNanos;
+    /**
+     * The time the last load spent measuring the paths.
+     */
+    private long loadMeasureNanos;
+    /**
+     * The number of paths the last load measured.
+     */
+    private int measuredPathCount;
+    /**
+     * The number of paths the last load left to be measured when they are animated.
+     */
+    private int deferredPathCount;
+    /**
+     * The number of times something was found in a cache.
+     */
+    private long cacheHits;
+    /**
+     * The number of times something had to be created because it was not in a cache.
+     */
+    private long cacheMisses;
+
+    /**
+     * Set what is collected.
+     *
+     * @param timed  If the stages are timed for a listener.
+     * @param traced If the stages are emitted as trace sections.
+     */
+    void configure(final boolean timed, final boolean traced) {
+        this.timed = timed;
+        this.traced = traced && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+    }
+
+    /**
+     * Starts a new frame.
+     */
+    void beginFrame() {
+        if (timed) {
+            frameStart = System.nanoTime();
+            for (int i = STAGE_PROGRESS + 1; i < STAGE_LOAD; i++) {
+                stageNanos[i] = 0;
+            }
+            drawPathCalls = 0;
+            trimmedPaths = 0;
+        }
+    }
+
+    /**
+     * Ends the current frame.
+     *
+     * @param paths       The number of paths.
+     * @param bitmapBytes The size of the offscreen bitmap in bytes.
+     */
+    void endFrame(final int paths, final int bitmapBytes) {
+        if (timed) {
+            frameNanos = System.nanoTime() - frameStart;
+            frameCount++;
+            pathCount = paths;
+            offscreenBitmapBytes = bitmapBytes;
+        }
+    }
+
+    /**
+     * Called after the frame was reported, so the progress of the next frame starts from zero.
+     */
+    void resetProgress() {
+        stageNanos[STAGE_PROGRESS] = 0;
+    }
+
+    /**
+     * Starts a stage.
+     *
+     * @param stage One of the STAGE constants.
+     */
+    void begin(final int stage) {
+        if (traced) {
+            beginSection(SECTION_NAMES[stage]);
+        }
+        if (timed) {
+            stageStarts[stage] = System.nanoTime();
+        }
+    }
+
+    /**
+     * Ends a stage and adds its duration to the frame.
+     *
+     * @param stage One of the STAGE constants.
+     */
+    void end(final int stage) {
+        if (timed) {
+            stageNanos[stage] += System.nanoTime() - stageStarts[stage];
+        }
+        if (traced) {
+            endSection();
+        }
+    }
+
+    /**
+     * Records the drawn paths.
+     *
+     * @param count The number of drawPath calls.
+     */
+    void addDrawPathCalls(final int count) {
+        drawPathCalls += count;
+    }
+
+    /**
+     * Records the paths trimmed for the frame.
+     *
+     * @param count The number of trimmed paths.
+     */
+    void addTrimmedPaths(final int count) {
+        trimmedPaths += count;
+    }
+
+    /**
+     * Records an update of the progress or the paths.
+     *
+     * @param coalesced If it replaced an update that was not drawn yet.
+     */
+    void recordProgressUpdate(final boolean coalesced) {
+        progressUpdates++;
+        if (coalesced) {
+            coalescedUpdates++;
+        }
+    }
+
+    /**
+     * Records a lookup in a cache.
+     *
+     * @param hit If the value was found.
+     */
+    void recordCache(final boolean hit) {
+        if (hit) {
+            cacheHits++;
+        } else {
+            cacheMisses++;
+        }
+    }
+
+    /**
+     * Records a finished load.
+     *
+     * @param latencyNanos The time from the size change until the paths were ready.
+     * @param paths        The number of paths.
+     * @param segments     The number of contours of all the paths.
+     */
+    void recordLoad(final long latencyNanos, final int paths, final int segments) {
+        loaderLatencyNanos = latencyNanos;
+        pathCount = paths;
+        segmentCount = segments;
+    }
+
+    /**
+     * Records where the time of the extraction of a finished load went.
+     *
+     * @param captureNanos The time spent capturing the geometry of the paths.
+     * @param measureNanos The time spent measuring the paths.
+     * @param measured     The number of measured paths.
+     * @param deferred     The number of paths left to be measured when they are animated.
+     */
+    void recordLoadBreakdown(final long captureNanos, final long measureNanos,
+                             final int measured, final int deferred) {
+        loadCaptureNanos = captureNanos;
+        loadMeasureNanos = measureNanos;
+        measuredPathCount = measured;
+        deferredPathCount = deferred;
+    }
+
+    /**
+     * @return The duration of the last frame in nanoseconds.
+     */
+    public long getFrameNanos() {
+        return frameNanos;
+    }
+
+    /**
+     * @param stage One of the STAGE constants.
+     * @return The duration of the stage in the last frame in nanoseconds.
+     */
+    public long getStageNanos(final int stage) {
+        return stageNanos[stage];
+    }
+
+    /**
+     * @return The number of reported frames.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * @return The number of drawn paths in the last frame.
+     */
+    public int getDrawPathCalls() {
+        return drawPathCalls;
+    }
+
+    /**
+     * @return The number of paths trimmed for the last frame. Paths whose trimmed length did not
+     * change are not counted.
+     */
+    public int getTrimmedPaths() {
+        return trimmedPaths;
+    }
+
+    /**
+     * @return The number of recorded progress updates.
+     */
+    public long getProgressUpdates() {
+        return progressUpdates;
+    }
+
+    /**
+     * @return The number of progress updates that were replaced by a later one before they were
+     * drawn, so their paths were never trimmed.
+     */
+    public long getCoalescedUpdates() {
+        return coalescedUpdates;
+    }
+
+    /**
+     * @return The number of paths of the view.
+     */
+    public int getPathCount() {
+        return pathCount;
+    }
+
+    /**
+     * @return The number of contours of all the paths of the view.
+     */
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * @return The size of the offscreen bitmap in bytes.
+     */
+    public int getOffscreenBitmapBytes() {
+        return offscreenBitmapBytes;
+    }
+
+    /**
+     * @return The time from the last size change until the paths were ready, in nanoseconds.
+     */
+    public long getLoaderLatencyNanos() {
+        return loaderLatencyNanos;
+    }
+
+    /**
+     * @return The time the last load spent capturing the geometry of the paths, in nanoseconds.
+     */
+    public long getLoadCaptureNanos() {
+        return loadCaptureNanos;
+    }
+
+    /**
+     * @return The time the last load spent measuring the paths, in nanoseconds.
+     */
+    public long getLoadMeasureNanos() {
+        return loadMeasureNanos;
+    }
+
+    /**
+     * @return The number of paths the last load measured.
+     */
+    public int getMeasuredPathCount() {
+        return measuredPathCount;
+    }
+
+    /**
+     * @return The number of paths the last load did not measure because they are not animated.
+     */
+    public int getDeferredPathCount() {
+        return deferredPathCount;
+    }
+
+    /**
+     * @return The number of cache hits.
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * @return The number of cache misses.
+     */
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    /**
+     * @return The ratio of cache hits to all cache lookups, or 0 if there were none.
+     */
+    public float getCacheHitRate() {
+        final long total = cacheHits + cacheMisses;
+        return total == 0 ? 0f : (float) cacheHits / total;
+    }
+
+    /**
+     * Begins a trace section. Only called from API 18.
+     *
+     * @param name The name of the section.
+     */
+    private static void beginSection(final String name) {
+        Trace.beginSection(name);
+    }
+
+    /**
+     * Ends the last trace section. Only called from API 18.
+     */
+    private static void endSection() {
+        Trace.endSection();
+    }
+}
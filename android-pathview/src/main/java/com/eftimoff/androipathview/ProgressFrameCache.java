@@ -0,0 +1,190 @@
+package com.eftimoff.androipathview;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the rendered offscreen bitmap of a PathView for every step of a quantized progress, so a
+ * progress that is scrubbed back and forth is drawn from the cache instead of trimming and
+ * drawing the paths again. The least recently used frames are dropped above a memory budget.
+ */
+final class ProgressFrameCache {
+    /**
+     * The number of values of the drawing state.
+     */
+    static final int STATE_SIZE = 14;
+
+    /**
+     * The rendered frames by step, the least recently used first.
+     */
+    private final LinkedHashMap<Integer, Bitmap> frames =
+            new LinkedHashMap<Integer, Bitmap>(16, 0.75f, true);
+    /**
+     * Dropped bitmaps, reused for the next frames.
+     */
+    private final List<Bitmap> pool = new ArrayList<>();
+    /**
+     * The drawing state the frames were rendered with.
+     */
+    private final int[] state = new int[STATE_SIZE];
+    /**
+     * The largest number of bytes of the frames.
+     */
+    private final int maxBytes;
+    /**
+     * The number of bytes of the frames.
+     */
+    private int bytes;
+    /**
+     * The number of frames found in the cache.
+     */
+    private long hits;
+    /**
+     * The number of frames that had to be rendered.
+     */
+    private long misses;
+
+    /**
+     * Constructor.
+     *
+     * @param maxBytes The largest number of bytes of the frames.
+     */
+    ProgressFrameCache(final int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Drops all the frames if the drawing state changed since they were rendered.
+     *
+     * @param current The current drawing state, STATE_SIZE values.
+     */
+    void updateState(final int[] current) {
+        if (!Arrays.equals(state, current)) {
+            System.arraycopy(current, 0, state, 0, STATE_SIZE);
+            clear();
+        }
+    }
+
+    /**
+     * Get the frame of a step and count the lookup.
+     *
+     * @param step The step of the progress.
+     * @return The frame or null if it must be rendered.
+     */
+    Bitmap get(final int step) {
+        final Bitmap frame = frames.get(step);
+        if (frame != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return frame;
+    }
+
+    /**
+     * Get a bitmap for a new frame, from the dropped frames if one has the same size and config.
+     *
+     * @param width  The width of the frame.
+     * @param height The height of the frame.
+     * @param config The config of the frame.
+     * @return The bitmap.
+     */
+    Bitmap obtain(final int width, final int height, final Bitmap.Config config) {
+        for (int i = pool.size() - 1; i >= 0; i--) {
+            final Bitmap bitmap = pool.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height
+                    && bitmap.getConfig() == config) {
+                return pool.remove(i);
+            }
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Keeps the frame of a step. The least recently used frames are dropped while the frames
+     * use more than the budget. A frame larger than the budget is not kept.
+     *
+     * @param step  The step of the progress.
+     * @param frame The rendered frame.
+     */
+    void put(final int step, final Bitmap frame) {
+        final int size = frame.getRowBytes() * frame.getHeight();
+        if (size > maxBytes) {
+            pool.add(frame);
+            trimPool();
+            return;
+        }
+        final Bitmap old = frames.put(step, frame);
+        bytes += size;
+        if (old != null) {
+            bytes -= old.getRowBytes() * old.getHeight();
+            pool.add(old);
+        }
+        final Iterator<Map.Entry<Integer, Bitmap>> eldest = frames.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            final Bitmap dropped = eldest.next().getValue();
+            eldest.remove();
+            bytes -= dropped.getRowBytes() * dropped.getHeight();
+            pool.add(dropped);
+        }
+        trimPool();
+    }
+
+    /**
+     * Drops all the frames. One bitmap is kept for the next frame.
+     */
+    void clear() {
+        pool.addAll(frames.values());
+        frames.clear();
+        bytes = 0;
+        trimPool();
+    }
+
+    /**
+     * Recycles all the bitmaps.
+     */
+    void recycle() {
+        clear();
+        for (Bitmap bitmap : pool) {
+            bitmap.recycle();
+        }
+        pool.clear();
+    }
+
+    /**
+     * Recycles the dropped bitmaps but one, which is enough to render the next frame.
+     */
+    private void trimPool() {
+        while (pool.size() > 1) {
+            pool.remove(0).recycle();
+        }
+    }
+
+    /**
+     * @return The number of bytes of the frames.
+     */
+    int getByteCount() {
+        return bytes;
+    }
+
+    /**
+     * @return The number of cached frames.
+     */
+    int getFrameCount() {
+        return frames.size();
+    }
+
+    /**
+     * @return The ratio of lookups that found a frame, or 0 if there were none.
+     */
+    float getHitRate() {
+        final long total = hits + misses;
+        return total == 0 ? 0f : (float) hits / total;
+    }
+}
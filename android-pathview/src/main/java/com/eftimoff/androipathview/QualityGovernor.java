@@ -0,0 +1,187 @@
+package com.eftimoff.androipathview;
+
+/**
+ * Measures how long a PathView takes to draw and lowers the rendering quality step by step while
+ * it is over budget. The quality is raised again when there is enough headroom.
+ */
+public class QualityGovernor {
+    /**
+     * Everything is drawn at full quality.
+     */
+    public static final int LEVEL_FULL = 0;
+    /**
+     * The paths that are still being drawn are not anti-aliased.
+     */
+    public static final int LEVEL_NO_ANTI_ALIAS = 1;
+    /**
+     * The offscreen buffer is rendered at half the resolution and scaled up.
+     */
+    public static final int LEVEL_REDUCED_RESOLUTION = 2;
+    /**
+     * The progress is snapped to coarse steps, so the paths are trimmed less often.
+     */
+    public static final int LEVEL_COARSE_PROGRESS = 3;
+    /**
+     * The fill under the paths is skipped until the paths are complete.
+     */
+    public static final int LEVEL_NO_FILL = 4;
+    /**
+     * The lowest quality.
+     */
+    private static final int LEVEL_LOWEST = LEVEL_NO_FILL;
+    /**
+     * Weight of a new frame in the average frame time.
+     */
+    private static final float SMOOTHING = 0.2f;
+    /**
+     * Consecutive frames over budget before the quality is lowered.
+     */
+    private static final int DOWNGRADE_FRAMES = 3;
+    /**
+     * Consecutive frames with headroom before the quality is raised.
+     */
+    private static final int UPGRADE_FRAMES = 30;
+    /**
+     * Part of the budget the average must stay under to count as headroom.
+     */
+    private static final float HEADROOM = 0.5f;
+
+    /**
+     * The budget for one draw in nanoseconds.
+     */
+    private final long budgetNanos;
+    /**
+     * The average draw time in nanoseconds.
+     */
+    private float averageNanos;
+    /**
+     * The current quality level.
+     */
+    private int level = LEVEL_FULL;
+    /**
+     * Consecutive frames over budget.
+     */
+    private int overBudgetFrames;
+    /**
+     * Consecutive frames with headroom.
+     */
+    private int headroomFrames;
+    /**
+     * The number of level changes.
+     */
+    private int transitions;
+    /**
+     * Listener for the level changes.
+     */
+    private Listener listener;
+
+    /**
+     * Creates a governor with a budget for one draw of the view.
+     *
+     * @param budgetMillis The budget in milliseconds, e.g. 8 to leave half of a 60 fps frame
+     *                     to the rest of the app.
+     */
+    public QualityGovernor(final float budgetMillis) {
+        if (budgetMillis <= 0) {
+            throw new IllegalArgumentException("budgetMillis must be positive");
+        }
+        this.budgetNanos = (long) (budgetMillis * 1000000);
+    }
+
+    /**
+     * Set a listener for the level changes. It is called on the main thread.
+     *
+     * @param listener The listener or null.
+     */
+    public void setListener(final Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return The current quality level, one of the LEVEL constants.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return The number of times the level changed.
+     */
+    public int getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * @return The average draw time in milliseconds.
+     */
+    public float getAverageMillis() {
+        return averageNanos / 1000000f;
+    }
+
+    /**
+     * Goes back to full quality and forgets the measured frames.
+     */
+    public void reset() {
+        averageNanos = 0;
+        overBudgetFrames = 0;
+        headroomFrames = 0;
+        setLevel(LEVEL_FULL);
+    }
+
+    /**
+     * Records the duration of a draw and changes the level if needed.
+     *
+     * @param frameNanos The duration of the draw.
+     */
+    void onFrame(final long frameNanos) {
+        averageNanos = averageNanos == 0 ? frameNanos
+                : averageNanos + (frameNanos - averageNanos) * SMOOTHING;
+        if (averageNanos > budgetNanos) {
+            headroomFrames = 0;
+            if (++overBudgetFrames >= DOWNGRADE_FRAMES && level < LEVEL_LOWEST) {
+                overBudgetFrames = 0;
+                setLevel(level + 1);
+            }
+        } else if (averageNanos < budgetNanos * HEADROOM) {
+            overBudgetFrames = 0;
+            if (++headroomFrames >= UPGRADE_FRAMES && level > LEVEL_FULL) {
+                headroomFrames = 0;
+                setLevel(level - 1);
+            }
+        } else {
+            overBudgetFrames = 0;
+            headroomFrames = 0;
+        }
+    }
+
+    /**
+     * Changes the level and notifies the listener.
+     *
+     * @param newLevel The new level.
+     */
+    private void setLevel(final int newLevel) {
+        if (newLevel == level) {
+            return;
+        }
+        final int oldLevel = level;
+        level = newLevel;
+        transitions++;
+        if (listener != null) {
+            listener.onQualityChanged(oldLevel, newLevel);
+        }
+    }
+
+    /**
+     * Listener for the level changes.
+     */
+    public interface Listener {
+
+        /**
+         * Called when the quality level changes.
+         *
+         * @param oldLevel The previous level.
+         * @param newLevel The new level.
+         */
+        void onQualityChanged(int oldLevel, int newLevel);
+    }
+}
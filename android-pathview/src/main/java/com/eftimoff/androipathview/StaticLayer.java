@@ -0,0 +1,89 @@
+package com.eftimoff.androipathview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import java.util.Arrays;
+
+/**
+ * A part of a PathView that does not change while it animates, e.g. the fill and the paths that
+ * are not animated, or the fill that is revealed after the paths, rendered once into a bitmap.
+ * It is rendered again only when the drawing state changes.
+ */
+final class StaticLayer {
+    /**
+     * The number of values of the drawing state.
+     */
+    static final int STATE_SIZE = 11;
+
+    /**
+     * The drawing state the layer was rendered with.
+     */
+    private final int[] state = new int[STATE_SIZE];
+    /**
+     * Canvas for the bitmap.
+     */
+    private final Canvas canvas = new Canvas();
+    /**
+     * The rendered layer, or null.
+     */
+    private Bitmap bitmap;
+    /**
+     * If the bitmap holds a rendered layer.
+     */
+    private boolean valid;
+
+    /**
+     * Checks if the layer must be rendered again and prepares the bitmap for it.
+     *
+     * @param current The current drawing state, STATE_SIZE values.
+     * @param width   The width of the layer.
+     * @param height  The height of the layer.
+     * @param config  The config of the layer.
+     * @return The canvas to render the layer with, erased, or null if the layer is up to date.
+     */
+    Canvas update(final int[] current, final int width, final int height,
+                  final Bitmap.Config config) {
+        if (valid && Arrays.equals(state, current)) {
+            return null;
+        }
+        System.arraycopy(current, 0, state, 0, STATE_SIZE);
+        if (bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height
+                || bitmap.getConfig() != config) {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+            bitmap = Bitmap.createBitmap(width, height, config);
+            canvas.setBitmap(bitmap);
+        } else {
+            bitmap.eraseColor(0);
+        }
+        valid = true;
+        return canvas;
+    }
+
+    /**
+     * @return The rendered layer.
+     */
+    Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * @return The memory used by the layer.
+     */
+    int getByteCount() {
+        return bitmap != null ? bitmap.getRowBytes() * bitmap.getHeight() : 0;
+    }
+
+    /**
+     * Recycles the bitmap.
+     */
+    void recycle() {
+        if (bitmap != null) {
+            bitmap.recycle();
+            bitmap = null;
+        }
+        valid = false;
+    }
+}
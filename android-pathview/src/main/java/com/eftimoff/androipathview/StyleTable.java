@@ -0,0 +1,153 @@
+package com.eftimoff.androipathview;
+
+import android.graphics.Paint;
+
+import java.util.Arrays;
+
+/**
+ * Interned stroke styles of the paths of an svg. Every unique combination of color, width, cap,
+ * join and miter is stored once and has a single Paint, the paths only keep its index.
+ * <p/>
+ * The styles are immutable once interned, so the paints must not be changed, except for a
+ * draw call that restores them.
+ */
+final class StyleTable {
+    /**
+     * The initial capacity of the table.
+     */
+    private static final int INITIAL_CAPACITY = 8;
+    /**
+     * The caps in the order of their ordinals.
+     */
+    private static final Paint.Cap[] CAPS = Paint.Cap.values();
+    /**
+     * The joins in the order of their ordinals.
+     */
+    private static final Paint.Join[] JOINS = Paint.Join.values();
+
+    /**
+     * The color with the alpha of every style.
+     */
+    private int[] colors = new int[INITIAL_CAPACITY];
+    /**
+     * The stroke width of every style.
+     */
+    private float[] widths = new float[INITIAL_CAPACITY];
+    /**
+     * The miter limit of every style.
+     */
+    private float[] miters = new float[INITIAL_CAPACITY];
+    /**
+     * The ordinal of the cap of every style.
+     */
+    private byte[] caps = new byte[INITIAL_CAPACITY];
+    /**
+     * The ordinal of the join of every style.
+     */
+    private byte[] joins = new byte[INITIAL_CAPACITY];
+    /**
+     * The paint of every style.
+     */
+    private Paint[] paints = new Paint[INITIAL_CAPACITY];
+    /**
+     * The number of styles.
+     */
+    private int size;
+
+    /**
+     * Finds the style or adds it to the table.
+     *
+     * @param color The color with the alpha.
+     * @param width The stroke width.
+     * @param cap   The stroke cap.
+     * @param join  The stroke join.
+     * @param miter The miter limit.
+     * @return The index of the style.
+     */
+    int intern(final int color, final float width, final Paint.Cap cap, final Paint.Join join,
+               final float miter) {
+        final byte capOrdinal = (byte) cap.ordinal();
+        final byte joinOrdinal = (byte) join.ordinal();
+        for (int i = 0; i < size; i++) {
+            if (colors[i] == color && widths[i] == width && caps[i] == capOrdinal
+                    && joins[i] == joinOrdinal && miters[i] == miter) {
+                return i;
+            }
+        }
+        if (size == colors.length) {
+            final int capacity = size * 2;
+            colors = Arrays.copyOf(colors, capacity);
+            widths = Arrays.copyOf(widths, capacity);
+            miters = Arrays.copyOf(miters, capacity);
+            caps = Arrays.copyOf(caps, capacity);
+            joins = Arrays.copyOf(joins, capacity);
+            paints = Arrays.copyOf(paints, capacity);
+        }
+        colors[size] = color;
+        widths[size] = width;
+        miters[size] = miter;
+        caps[size] = capOrdinal;
+        joins[size] = joinOrdinal;
+        return size++;
+    }
+
+    /**
+     * @return The number of styles.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param index The index of the style.
+     * @return The color with the alpha.
+     */
+    int getColor(final int index) {
+        return colors[index];
+    }
+
+    /**
+     * @param index The index of the style.
+     * @return The stroke width.
+     */
+    float getStrokeWidth(final int index) {
+        return widths[index];
+    }
+
+    /**
+     * @param index The index of the style.
+     * @return The stroke cap.
+     */
+    Paint.Cap getStrokeCap(final int index) {
+        return CAPS[caps[index]];
+    }
+
+    /**
+     * @param index The index of the style.
+     * @return The stroke join.
+     */
+    Paint.Join getStrokeJoin(final int index) {
+        return JOINS[joins[index]];
+    }
+
+    /**
+     * Get the paint of a style, it is created the first time.
+     *
+     * @param index The index of the style.
+     * @return The anti-aliased stroke paint of the style.
+     */
+    Paint getPaint(final int index) {
+        Paint paint = paints[index];
+        if (paint == null) {
+            paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setColor(colors[index]);
+            paint.setStrokeWidth(widths[index]);
+            paint.setStrokeCap(CAPS[caps[index]]);
+            paint.setStrokeJoin(JOINS[joins[index]]);
+            paint.setStrokeMiter(miters[index]);
+            paints[index] = paint;
+        }
+        return paint;
+    }
+}
@@ -0,0 +1,183 @@
+package com.eftimoff.androipathview;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process wide queue of the svg loads of the views. A limited number of loader threads runs the
+ * waiting load with the highest priority first, so the visible views are not slowed down by the
+ * loads of views that are off screen. Loads of the same priority run in the order they were
+ * submitted.
+ */
+final class SvgLoadQueue {
+    /**
+     * The priority of a view that is off screen or hidden.
+     */
+    static final int PRIORITY_HIDDEN = 0;
+    /**
+     * The priority of a view that is attached and on screen.
+     */
+    static final int PRIORITY_VISIBLE = 1;
+    /**
+     * The priority of a view that asked to be loaded first.
+     */
+    static final int PRIORITY_BUMPED = 2;
+
+    /**
+     * The loads that wait for a loader thread.
+     */
+    private static final List<Task> WAITING = new ArrayList<>();
+    /**
+     * Runs the waiting loads until there are none left.
+     */
+    private static final Runnable WORKER = new Runnable() {
+        @Override
+        public void run() {
+            boolean idle = false;
+            try {
+                Task task;
+                while ((task = next()) != null) {
+                    task.run();
+                    task.done = true;
+                }
+                idle = true;
+            } finally {
+                if (!idle) {
+                    // The load threw, another thread takes over the waiting loads.
+                    finished();
+                }
+            }
+        }
+    };
+    /**
+     * The largest number of loads that run at the same time.
+     */
+    private static int maxConcurrent = 2;
+    /**
+     * The number of loader threads.
+     */
+    private static int running;
+    /**
+     * The number of submitted loads, for the order of the loads of the same priority.
+     */
+    private static long submitted;
+
+    private SvgLoadQueue() {
+    }
+
+    /**
+     * Adds a load to the queue. It runs when a loader thread is free and no load with a higher
+     * priority waits.
+     *
+     * @param task The load.
+     */
+    static synchronized void submit(final Task task) {
+        task.sequence = submitted++;
+        task.done = false;
+        WAITING.add(task);
+        startWorkers();
+    }
+
+    /**
+     * Removes a load that did not start yet.
+     *
+     * @param task The load.
+     * @return true if the load was waiting and will not run, false if it started.
+     */
+    static synchronized boolean cancel(final Task task) {
+        return WAITING.remove(task);
+    }
+
+    /**
+     * Set the largest number of loads that run at the same time.
+     *
+     * @param max The number of loads, at least 1.
+     */
+    static synchronized void setMaxConcurrent(final int max) {
+        maxConcurrent = max;
+        startWorkers();
+    }
+
+    /**
+     * @return The largest number of loads that run at the same time.
+     */
+    static synchronized int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * @return The number of loads that wait for a loader thread.
+     */
+    static synchronized int getWaitingCount() {
+        return WAITING.size();
+    }
+
+    /**
+     * Starts loader threads up to the limit while loads are waiting.
+     */
+    private static void startWorkers() {
+        while (running < maxConcurrent && running < WAITING.size()) {
+            running++;
+            new Thread(WORKER, "SVG Loader").start();
+        }
+    }
+
+    /**
+     * Takes the waiting load with the highest priority. The thread stops if there is none or the
+     * limit was lowered.
+     *
+     * @return The load, or null if the thread must stop.
+     */
+    private static synchronized Task next() {
+        if (WAITING.isEmpty() || running > maxConcurrent) {
+            running--;
+            return null;
+        }
+        int best = 0;
+        final int size = WAITING.size();
+        for (int i = 1; i < size; i++) {
+            final Task task = WAITING.get(i);
+            final Task current = WAITING.get(best);
+            if (task.priority > current.priority
+                    || (task.priority == current.priority && task.sequence < current.sequence)) {
+                best = i;
+            }
+        }
+        return WAITING.remove(best);
+    }
+
+    /**
+     * Stops a loader thread whose load threw.
+     */
+    private static synchronized void finished() {
+        running--;
+        startWorkers();
+    }
+
+    /**
+     * A load of the queue.
+     */
+    abstract static class Task implements Runnable {
+        /**
+         * The priority of the load, it can be changed while it waits.
+         */
+        volatile int priority;
+        /**
+         * If the load ran to the end.
+         */
+        volatile boolean done;
+        /**
+         * The order the load was submitted in.
+         */
+        private long sequence;
+
+        /**
+         * Constructor.
+         *
+         * @param priority The priority of the load.
+         */
+        Task(final int priority) {
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.eftimoff.androipathview;
+
+import android.graphics.RectF;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process wide cache of the measured paths of the svg resources, so views that are bound to an
+ * svg again, e.g. while scrolling a list, get their paths without parsing the svg. The morphs
+ * between two svgs are cached the same way.
+ */
+final class SvgPathCache {
+    /**
+     * The number of svg and viewport combinations that are kept.
+     */
+    private static final int MAX_ENTRIES = 32;
+    /**
+     * The cached paths, the least recently used first.
+     */
+    private static final Map<Key, Entry> ENTRIES = new LruMap<>(MAX_ENTRIES);
+    /**
+     * The number of morphs that are kept.
+     */
+    private static final int MAX_MORPHS = 16;
+    /**
+     * The cached morphs, the least recently used first.
+     */
+    private static final Map<Key, PathMorph> MORPHS = new LruMap<>(MAX_MORPHS);
+    /**
+     * Reused key for the lookups.
+     */
+    private static final Key LOOKUP = new Key();
+
+    private SvgPathCache() {
+    }
+
+    /**
+     * Map in access order that drops the least recently used entry above a number of entries.
+     *
+     * @param <V> The type of the values.
+     */
+    private static final class LruMap<V> extends LinkedHashMap<Key, V> {
+        /**
+         * The map is never serialized, the id only satisfies the lint.
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * The number of entries that are kept.
+         */
+        private final int maxEntries;
+
+        /**
+         * @param maxEntries The number of entries that are kept.
+         */
+        LruMap(final int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Key, V> eldest) {
+            return size() > maxEntries;
+        }
+    }
+
+    /**
+     * Get the paths of an svg for a viewport.
+     *
+     * @param svgResource The raw resource id of the svg.
+     * @param width       The width of the viewport.
+     * @param height      The height of the viewport.
+     * @param strokeWidth The stroke width the paths were scaled with.
+     * @return The entry or null if the paths are not cached.
+     */
+    static synchronized Entry get(final int svgResource, final int width,
+                                               final int height, final float strokeWidth) {
+        LOOKUP.set(svgResource, width, height, strokeWidth);
+        return ENTRIES.get(LOOKUP);
+    }
+
+    /**
+     * Cache the paths of an svg for a viewport.
+     *
+     * @param svgResource The raw resource id of the svg.
+     * @param width       The width of the viewport.
+     * @param height      The height of the viewport.
+     * @param strokeWidth The stroke width the paths were scaled with.
+     * @param paths       The loaded paths.
+     * @param viewBox     The viewBox of the svg.
+     * @return The new entry.
+     */
+    static synchronized Entry put(final int svgResource, final int width, final int height,
+                                 final float strokeWidth, final List<SvgUtils.SvgPath> paths,
+                                 final RectF viewBox) {
+        final Key key = new Key();
+        key.set(svgResource, width, height, strokeWidth);
+        final Entry entry = new Entry(paths.toArray(new SvgUtils.SvgPath[paths.size()]),
+                viewBox != null ? new RectF(viewBox) : null);
+        ENTRIES.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Get the morph between two svgs for a viewport.
+     *
+     * @param fromResource The raw resource id of the first svg.
+     * @param toResource   The raw resource id of the second svg.
+     * @param width        The width of the viewport.
+     * @param height       The height of the viewport.
+     * @param strokeWidth  The stroke width the paths were scaled with.
+     * @return The morph or null if it is not cached.
+     */
+    static synchronized PathMorph getMorph(final int fromResource, final int toResource,
+                                           final int width, final int height,
+                                           final float strokeWidth) {
+        LOOKUP.set(fromResource, toResource, width, height, strokeWidth);
+        return MORPHS.get(LOOKUP);
+    }
+
+    /**
+     * Cache the morph between two svgs for a viewport.
+     *
+     * @param fromResource The raw resource id of the first svg.
+     * @param toResource   The raw resource id of the second svg.
+     * @param width        The width of the viewport.
+     * @param height       The height of the viewport.
+     * @param strokeWidth  The stroke width the paths were scaled with.
+     * @param morph        The morph.
+     */
+    static synchronized void putMorph(final int fromResource, final int toResource,
+                                      final int width, final int height, final float strokeWidth,
+                                      final PathMorph morph) {
+        final Key key = new Key();
+        key.set(fromResource, toResource, width, height, strokeWidth);
+        MORPHS.put(key, morph);
+    }
+
+    /**
+     * Get the memory used by the geometry of the cached paths of an svg, for all the viewports
+     * it is cached for.
+     *
+     * @param svgResource The raw resource id of the svg.
+     * @return The number of bytes.
+     */
+    static synchronized int getByteCount(final int svgResource) {
+        int bytes = 0;
+        for (Map.Entry<Key, Entry> entry : ENTRIES.entrySet()) {
+            if (entry.getKey().svgResource == svgResource) {
+                bytes += entry.getValue().geometryBytes;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Drops all the cached paths.
+     */
+    static synchronized void clear() {
+        ENTRIES.clear();
+        MORPHS.clear();
+    }
+
+    /**
+     * The cached paths of an svg.
+     */
+    static final class Entry {
+        /**
+         * The paths. They must not be trimmed.
+         */
+        final SvgUtils.SvgPath[] paths;
+        /**
+         * The viewBox of the svg, or null if it is not known.
+         */
+        final RectF viewBox;
+        /**
+         * The memory used by the geometry of the paths.
+         */
+        final int geometryBytes;
+
+        /**
+         * Constructor.
+         *
+         * @param paths   The paths.
+         * @param viewBox The viewBox of the svg.
+         */
+        Entry(final SvgUtils.SvgPath[] paths, final RectF viewBox) {
+            this.paths = paths;
+            this.viewBox = viewBox;
+            int bytes = 0;
+            PathGeometry counted = null;
+            for (SvgUtils.SvgPath path : paths) {
+                if (path.geometry != null && path.geometry != counted) {
+                    counted = path.geometry;
+                    bytes += counted.getByteCount();
+                }
+            }
+            this.geometryBytes = bytes;
+        }
+
+        /**
+         * @return False if the load left some paths to be measured when they are animated.
+         */
+        boolean isMeasured() {
+            for (SvgUtils.SvgPath path : paths) {
+                if (!path.isMeasured()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Measures the paths whose measurement was deferred. Runs on a load task.
+         */
+        void measure() {
+            for (SvgUtils.SvgPath path : paths) {
+                if (!path.isMeasured()) {
+                    path.geometry.measure(path.geometryIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * The svg and the viewport the paths were loaded for.
+     */
+    private static final class Key {
+        /**
+         * The raw resource id of the svg.
+         */
+        private int svgResource;
+        /**
+         * The raw resource id of the svg the paths are morphed into, or 0.
+         */
+        private int morphResource;
+        /**
+         * The width of the viewport.
+         */
+        private int width;
+        /**
+         * The height of the viewport.
+         */
+        private int height;
+        /**
+         * The stroke width the paths were scaled with.
+         */
+        private float strokeWidth;
+
+        /**
+         * Set the values of the key.
+         *
+         * @param svgResource The raw resource id of the svg.
+         * @param width       The width of the viewport.
+         * @param height      The height of the viewport.
+         * @param strokeWidth The stroke width the paths were scaled with.
+         */
+        void set(final int svgResource, final int width, final int height,
+                 final float strokeWidth) {
+            set(svgResource, 0, width, height, strokeWidth);
+        }
+
+        /**
+         * Set the values of the key of a morph.
+         *
+         * @param svgResource   The raw resource id of the svg.
+         * @param morphResource The raw resource id of the svg the paths are morphed into.
+         * @param width         The width of the viewport.
+         * @param height        The height of the viewport.
+         * @param strokeWidth   The stroke width the paths were scaled with.
+         */
+        void set(final int svgResource, final int morphResource, final int width,
+                 final int height, final float strokeWidth) {
+            this.svgResource = svgResource;
+            this.morphResource = morphResource;
+            this.width = width;
+            this.height = height;
+            this.strokeWidth = strokeWidth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return svgResource == key.svgResource && morphResource == key.morphResource
+                    && width == key.width
+                    && height == key.height && strokeWidth == key.strokeWidth;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = svgResource;
+            result = 31 * result + morphResource;
+            result = 31 * result + width;
+            result = 31 * result + height;
+            result = 31 * result + Float.floatToIntBits(strokeWidth);
+            return result;
+        }
+    }
+}
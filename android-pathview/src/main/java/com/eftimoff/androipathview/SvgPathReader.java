@@ -0,0 +1,1272 @@
+package com.eftimoff.androipathview;
+
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.Xml;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads the outlines of the shapes of an svg in a single pass, without building a document and
+ * without rendering it. The geometry is transformed straight into the viewport while it is read.
+ * <p/>
+ * Only the subset PathView needs is supported: path, line, polyline, polygon, rect, circle,
+ * ellipse, groups, transforms, viewBox and the fill and stroke attributes. Anything that could
+ * change the result throws {@link UnsupportedException}, so the caller can fall back to
+ * AndroidSVG. The paths are emitted in the same order and with the same geometry AndroidSVG
+ * draws them.
+ */
+final class SvgPathReader {
+    /**
+     * Control point distance for approximating a quarter of a circle with a cubic.
+     */
+    private static final float KAPPA = 0.5522848f;
+    /**
+     * Size of a transform in the transform stack.
+     */
+    private static final int MATRIX_SIZE = 6;
+
+    /**
+     * Thrown when the svg uses something the reader does not support.
+     */
+    static final class UnsupportedException extends Exception {
+        /**
+         * The exception is never serialized, the id only satisfies the lint.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * @param message What is not supported.
+         */
+        UnsupportedException(final String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The width of the viewport.
+     */
+    private final int width;
+    /**
+     * The height of the viewport.
+     */
+    private final int height;
+    /**
+     * The width of the stroke, added to the viewport scaling.
+     */
+    private final float strokeWidth;
+    /**
+     * The viewBox of the document.
+     */
+    private RectF viewBox;
+    /**
+     * Receives the paths as they are read.
+     */
+    private SvgUtils target;
+    /**
+     * The transforms of the open elements, MATRIX_SIZE floats per depth.
+     */
+    private float[] matrices = new float[MATRIX_SIZE * 16];
+    /**
+     * The inherited styles of the open elements, one per depth.
+     */
+    private Style[] styles = new Style[16];
+    /**
+     * The ids of the open elements, one per depth, null where there is no id.
+     */
+    private String[] ids = new String[16];
+    /**
+     * The transform of the current element.
+     */
+    private final float[] matrix = new float[MATRIX_SIZE];
+    /**
+     * Scratch transform used while parsing transform lists.
+     */
+    private final float[] operation = new float[MATRIX_SIZE];
+    /**
+     * Scratch numbers used while parsing.
+     */
+    private float[] numbers = new float[8];
+    /**
+     * The geometry the paths are built into.
+     */
+    private PathGeometry geometry;
+    /**
+     * The text being parsed.
+     */
+    private String text;
+    /**
+     * The position in the text being parsed.
+     */
+    private int position;
+
+    /**
+     * Creates a reader for a viewport.
+     *
+     * @param width       The width of the viewport.
+     * @param height      The height of the viewport.
+     * @param strokeWidth The width of the stroke, added to the viewport scaling.
+     */
+    SvgPathReader(final int width, final int height, final float strokeWidth) {
+        this.width = width;
+        this.height = height;
+        this.strokeWidth = strokeWidth;
+    }
+
+    /**
+     * @return The viewBox of the document that was read.
+     */
+    RectF getViewBox() {
+        return viewBox;
+    }
+
+    /**
+     * Reads only the viewBox from the root element of an svg, e.g. for the intrinsic size of a
+     * drawable. The rest of the document is not read.
+     *
+     * @param input The svg document.
+     * @return The viewBox, or null if the root element has no valid viewBox.
+     * @throws IOException            If the document can not be read.
+     * @throws XmlPullParserException If the document is not valid xml.
+     */
+    static RectF readViewBox(final InputStream input) throws IOException, XmlPullParserException {
+        final XmlPullParser parser = Xml.newPullParser();
+        parser.setInput(input, null);
+        int event;
+        while ((event = parser.next()) != XmlPullParser.END_DOCUMENT) {
+            if (event == XmlPullParser.START_TAG) {
+                final String value = parser.getAttributeValue(null, "viewBox");
+                final SvgPathReader reader = new SvgPathReader(0, 0, 0);
+                if (value == null || reader.parseNumbers(value) != 4
+                        || reader.numbers[2] <= 0 || reader.numbers[3] <= 0) {
+                    return null;
+                }
+                final float[] numbers = reader.numbers;
+                return new RectF(numbers[0], numbers[1], numbers[0] + numbers[2],
+                        numbers[1] + numbers[3]);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the paths of the svg and adds them to the target one by one.
+     *
+     * @param input  The svg document.
+     * @param target Receives the paths as they are read.
+     * @throws UnsupportedException   If the svg uses something that is not supported.
+     * @throws IOException            If the document can not be read.
+     * @throws XmlPullParserException If the document is not valid xml.
+     */
+    void read(final InputStream input, final SvgUtils target)
+            throws UnsupportedException, IOException, XmlPullParserException {
+        this.target = target;
+        this.geometry = target.getGeometry();
+        final XmlPullParser parser = Xml.newPullParser();
+        parser.setInput(input, null);
+        int skipDepth = 0;
+        int event;
+        while ((event = parser.next()) != XmlPullParser.END_DOCUMENT) {
+            final int depth = parser.getDepth();
+            if (event == XmlPullParser.END_TAG) {
+                if (depth == skipDepth) {
+                    skipDepth = 0;
+                }
+            } else if (event == XmlPullParser.START_TAG && skipDepth == 0) {
+                if (!startElement(parser, depth)) {
+                    skipDepth = depth;
+                }
+            }
+        }
+        if (viewBox == null) {
+            throw new UnsupportedException("no svg element");
+        }
+    }
+
+    /**
+     * Handles the start of an element.
+     *
+     * @param parser The parser positioned on the element.
+     * @param depth  The depth of the element, 1 for the root.
+     * @return False if the children of the element must be skipped.
+     * @throws UnsupportedException If the element is not supported.
+     */
+    private boolean startElement(final XmlPullParser parser, final int depth)
+            throws UnsupportedException {
+        final String name = parser.getName();
+        if (depth == 1) {
+            if (!"svg".equals(name)) {
+                throw new UnsupportedException("root element " + name);
+            }
+            return startDocument(parser);
+        }
+        if (name.indexOf(':') >= 0) {
+            return false;
+        }
+        switch (name) {
+            case "g":
+            case "a":
+                return applyAttributes(parser, depth);
+            case "path":
+            case "line":
+            case "polyline":
+            case "polygon":
+            case "rect":
+            case "circle":
+            case "ellipse":
+                if (applyAttributes(parser, depth)) {
+                    readShape(parser, name, depth);
+                }
+                return false;
+            case "defs":
+            case "title":
+            case "desc":
+            case "metadata":
+            case "linearGradient":
+            case "radialGradient":
+            case "clipPath":
+            case "mask":
+            case "pattern":
+            case "symbol":
+            case "marker":
+            case "filter":
+            case "text":
+            case "image":
+            case "foreignObject":
+                // Not rendered or not rendered as paths.
+                return false;
+            default:
+                throw new UnsupportedException("element " + name);
+        }
+    }
+
+    /**
+     * Reads the root element and sets up the viewport transform.
+     *
+     * @param parser The parser positioned on the root element.
+     * @return False if the document is not displayed.
+     * @throws UnsupportedException If there is no viewBox.
+     */
+    private boolean startDocument(final XmlPullParser parser) throws UnsupportedException {
+        final String value = parser.getAttributeValue(null, "viewBox");
+        if (value == null) {
+            throw new UnsupportedException("no viewBox");
+        }
+        final int count = parseNumbers(value);
+        if (count != 4 || numbers[2] <= 0 || numbers[3] <= 0) {
+            throw new UnsupportedException("viewBox " + value);
+        }
+        viewBox = new RectF(numbers[0], numbers[1], numbers[0] + numbers[2],
+                numbers[1] + numbers[3]);
+
+        final float scale = SvgUtils.getViewportScale(viewBox, width, height, strokeWidth);
+        matrices[0] = scale;
+        matrices[1] = 0;
+        matrices[2] = 0;
+        matrices[3] = scale;
+        matrices[4] = (width - viewBox.width() * scale) / 2.0f;
+        matrices[5] = (height - viewBox.height() * scale) / 2.0f;
+        styles[0] = new Style();
+        return applyAttributes(parser, 1);
+    }
+
+    /**
+     * Inherits the transform and style of the parent and applies the attributes of the element.
+     *
+     * @param parser The parser positioned on the element.
+     * @param depth  The depth of the element.
+     * @return False if the element is not displayed.
+     * @throws UnsupportedException If an attribute is not supported.
+     */
+    private boolean applyAttributes(final XmlPullParser parser, final int depth)
+            throws UnsupportedException {
+        if (depth * MATRIX_SIZE >= matrices.length) {
+            final float[] grown = new float[matrices.length * 2];
+            System.arraycopy(matrices, 0, grown, 0, matrices.length);
+            matrices = grown;
+            final Style[] grownStyles = new Style[styles.length * 2];
+            System.arraycopy(styles, 0, grownStyles, 0, styles.length);
+            styles = grownStyles;
+            final String[] grownIds = new String[ids.length * 2];
+            System.arraycopy(ids, 0, grownIds, 0, ids.length);
+            ids = grownIds;
+        }
+        if (styles[depth] == null) {
+            styles[depth] = new Style();
+        }
+        final Style style = styles[depth];
+        style.inherit(styles[depth - 1]);
+        System.arraycopy(matrices, (depth - 1) * MATRIX_SIZE, matrix, 0, MATRIX_SIZE);
+
+        String inlineStyle = null;
+        ids[depth] = null;
+        final int count = parser.getAttributeCount();
+        for (int i = 0; i < count; i++) {
+            final String name = parser.getAttributeName(i);
+            final String value = parser.getAttributeValue(i);
+            if ("transform".equals(name)) {
+                parseTransform(value);
+            } else if ("id".equals(name)) {
+                ids[depth] = value;
+            } else if ("style".equals(name)) {
+                inlineStyle = value;
+            } else if (!applyProperty(style, name, value.trim())) {
+                return false;
+            }
+        }
+        if (inlineStyle != null) {
+            int start = 0;
+            while (start < inlineStyle.length()) {
+                int end = inlineStyle.indexOf(';', start);
+                if (end < 0) {
+                    end = inlineStyle.length();
+                }
+                final int colon = inlineStyle.indexOf(':', start);
+                if (colon > start && colon < end) {
+                    final String name = inlineStyle.substring(start, colon).trim();
+                    final String value = inlineStyle.substring(colon + 1, end).trim();
+                    if (!applyProperty(style, name, value)) {
+                        return false;
+                    }
+                }
+                start = end + 1;
+            }
+        }
+        System.arraycopy(matrix, 0, matrices, depth * MATRIX_SIZE, MATRIX_SIZE);
+        return true;
+    }
+
+    /**
+     * Applies a presentation attribute or style property.
+     *
+     * @param style The style of the element.
+     * @param name  The name of the property.
+     * @param value The value of the property.
+     * @return False if the element is not displayed.
+     * @throws UnsupportedException If the property is not supported.
+     */
+    private boolean applyProperty(final Style style, final String name, final String value)
+            throws UnsupportedException {
+        if ("inherit".equals(value)) {
+            return true;
+        }
+        switch (name) {
+            case "fill":
+                style.hasFill = !"none".equals(value);
+                if (style.hasFill) {
+                    style.fill = parseColor(value, style);
+                }
+                break;
+            case "stroke":
+                style.hasStroke = !"none".equals(value);
+                if (style.hasStroke) {
+                    style.stroke = parseColor(value, style);
+                }
+                break;
+            case "color":
+                style.color = parseColor(value, style);
+                break;
+            case "fill-opacity":
+                style.fillOpacity = parseOpacity(value);
+                break;
+            case "stroke-opacity":
+                style.strokeOpacity = parseOpacity(value);
+                break;
+            case "stroke-linecap":
+                style.cap = "round".equals(value) ? Paint.Cap.ROUND
+                        : "square".equals(value) ? Paint.Cap.SQUARE : Paint.Cap.BUTT;
+                break;
+            case "stroke-linejoin":
+                style.join = "round".equals(value) ? Paint.Join.ROUND
+                        : "bevel".equals(value) ? Paint.Join.BEVEL : Paint.Join.MITER;
+                break;
+            case "stroke-miterlimit":
+                style.miter = parseNumber(value);
+                break;
+            case "visibility":
+                style.visible = "visible".equals(value);
+                break;
+            case "display":
+                return !"none".equals(value);
+            case "marker":
+            case "marker-start":
+            case "marker-mid":
+            case "marker-end":
+                if (!"none".equals(value)) {
+                    throw new UnsupportedException(name);
+                }
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * Reads the geometry of a shape and emits its fill and stroke paths.
+     *
+     * @param parser The parser positioned on the shape.
+     * @param name   The name of the shape element.
+     * @param depth  The depth of the shape.
+     * @throws UnsupportedException If a length is not supported.
+     */
+    private void readShape(final XmlPullParser parser, final String name, final int depth)
+            throws UnsupportedException {
+        final Style style = styles[depth];
+        boolean fillable = true;
+        switch (name) {
+            case "path":
+                final String d = parser.getAttributeValue(null, "d");
+                if (d != null) {
+                    parsePathData(d);
+                }
+                break;
+            case "line":
+                fillable = false;
+                moveTo(length(parser, "x1"), length(parser, "y1"));
+                lineTo(length(parser, "x2"), length(parser, "y2"));
+                break;
+            case "polyline":
+            case "polygon":
+                final String points = parser.getAttributeValue(null, "points");
+                final int count = points != null ? parseNumbers(points) & ~1 : 0;
+                for (int i = 0; i < count; i += 2) {
+                    if (i == 0) {
+                        moveTo(numbers[i], numbers[i + 1]);
+                    } else {
+                        lineTo(numbers[i], numbers[i + 1]);
+                    }
+                }
+                if (count > 0 && "polygon".equals(name)) {
+                    geometry.close();
+                }
+                break;
+            case "rect":
+                readRect(parser);
+                break;
+            default:
+                final float cx = length(parser, "cx");
+                final float cy = length(parser, "cy");
+                if ("circle".equals(name)) {
+                    final float r = length(parser, "r");
+                    ellipse(cx, cy, r, r);
+                } else {
+                    ellipse(cx, cy, length(parser, "rx"), length(parser, "ry"));
+                }
+                break;
+        }
+        if (geometry.isPathEmpty() || !style.visible) {
+            geometry.discardPath();
+            return;
+        }
+        // The fill and the stroke share the geometry and the ids.
+        final int index = geometry.endPath();
+        final String[] elementIds = getElementIds(depth);
+        if (style.hasFill && fillable) {
+            emit(index, elementIds, style.fill, style.fillOpacity, Paint.Cap.BUTT,
+                    Paint.Join.MITER, 4f);
+        }
+        if (style.hasStroke) {
+            emit(index, elementIds, style.stroke, style.strokeOpacity, style.cap, style.join,
+                    style.miter);
+        }
+    }
+
+    /**
+     * Collects the id of an element and the ids of the groups it is in.
+     *
+     * @param depth The depth of the element.
+     * @return The ids from the element outwards, or null if there are none.
+     */
+    private String[] getElementIds(final int depth) {
+        int count = 0;
+        for (int i = depth; i > 0; i--) {
+            if (ids[i] != null) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        final String[] elementIds = new String[count];
+        count = 0;
+        for (int i = depth; i > 0; i--) {
+            if (ids[i] != null) {
+                elementIds[count++] = ids[i];
+            }
+        }
+        return elementIds;
+    }
+
+    /**
+     * Adds a path with its style.
+     */
+    private void emit(final int index, final String[] elementIds, final int color,
+                      final float opacity, final Paint.Cap cap, final Paint.Join join,
+                      final float miter) {
+        final int alpha = Math.round(Math.max(0f, Math.min(1f, opacity)) * 255);
+        target.addPath(index, elementIds, (alpha << 24) | (color & 0x00ffffff), strokeWidth,
+                cap, join, miter);
+    }
+
+    /**
+     * Builds a rectangle the way AndroidSVG does.
+     *
+     * @param parser The parser positioned on the rect.
+     * @throws UnsupportedException If a length is not supported.
+     */
+    private void readRect(final XmlPullParser parser) throws UnsupportedException {
+        final float x = length(parser, "x");
+        final float y = length(parser, "y");
+        final float w = length(parser, "width");
+        final float h = length(parser, "height");
+        if (w <= 0 || h <= 0) {
+            return;
+        }
+        final boolean hasRx = parser.getAttributeValue(null, "rx") != null;
+        final boolean hasRy = parser.getAttributeValue(null, "ry") != null;
+        float rx = length(parser, "rx");
+        float ry = length(parser, "ry");
+        if (!hasRx) {
+            rx = ry;
+        } else if (!hasRy) {
+            ry = rx;
+        }
+        rx = Math.min(rx, w / 2f);
+        ry = Math.min(ry, h / 2f);
+        final float right = x + w;
+        final float bottom = y + h;
+        if (rx <= 0 || ry <= 0) {
+            moveTo(x, y);
+            lineTo(right, y);
+            lineTo(right, bottom);
+            lineTo(x, bottom);
+            lineTo(x, y);
+        } else {
+            final float cpx = rx * KAPPA;
+            final float cpy = ry * KAPPA;
+            moveTo(x, y + ry);
+            cubicTo(x, y + ry - cpy, x + rx - cpx, y, x + rx, y);
+            lineTo(right - rx, y);
+            cubicTo(right - rx + cpx, y, right, y + ry - cpy, right, y + ry);
+            lineTo(right, bottom - ry);
+            cubicTo(right, bottom - ry + cpy, right - rx + cpx, bottom, right - rx, bottom);
+            lineTo(x + rx, bottom);
+            cubicTo(x + rx - cpx, bottom, x, bottom - ry + cpy, x, bottom - ry);
+            lineTo(x, y + ry);
+        }
+        geometry.close();
+    }
+
+    /**
+     * Builds an ellipse the way AndroidSVG does, clockwise from the top.
+     */
+    private void ellipse(final float cx, final float cy, final float rx, final float ry) {
+        if (rx <= 0 || ry <= 0) {
+            return;
+        }
+        final float left = cx - rx;
+        final float top = cy - ry;
+        final float right = cx + rx;
+        final float bottom = cy + ry;
+        final float cpx = rx * KAPPA;
+        final float cpy = ry * KAPPA;
+        moveTo(cx, top);
+        cubicTo(cx + cpx, top, right, cy - cpy, right, cy);
+        cubicTo(right, cy + cpy, cx + cpx, bottom, cx, bottom);
+        cubicTo(cx - cpx, bottom, left, cy + cpy, left, cy);
+        cubicTo(left, cy - cpy, cx - cpx, top, cx, top);
+        geometry.close();
+    }
+
+    /**
+     * Parses the path data into the current path.
+     *
+     * @param data The value of the d attribute.
+     */
+    private void parsePathData(final String data) {
+        text = data;
+        position = 0;
+        char command = 0;
+        float x = 0, y = 0;
+        float startX = 0, startY = 0;
+        float controlX = 0, controlY = 0;
+        char previous = 0;
+        final int length = data.length();
+        while (true) {
+            skipSeparators();
+            if (position >= length) {
+                return;
+            }
+            final char c = data.charAt(position);
+            if (isCommand(c)) {
+                command = c;
+                position++;
+            } else if (command == 0 || command == 'z' || command == 'Z' || !isNumberStart(c)) {
+                // Invalid data, keep what was parsed like AndroidSVG does.
+                return;
+            }
+            final boolean relative = Character.isLowerCase(command);
+            final float ox = relative ? x : 0;
+            final float oy = relative ? y : 0;
+            final char absolute = Character.toUpperCase(command);
+            switch (absolute) {
+                case 'M':
+                    if (!readNumbers(2)) {
+                        return;
+                    }
+                    x = ox + numbers[0];
+                    y = oy + numbers[1];
+                    startX = x;
+                    startY = y;
+                    moveTo(x, y);
+                    // Following pairs are implicit line commands.
+                    command = relative ? 'l' : 'L';
+                    break;
+                case 'L':
+                    if (!readNumbers(2)) {
+                        return;
+                    }
+                    x = ox + numbers[0];
+                    y = oy + numbers[1];
+                    lineTo(x, y);
+                    break;
+                case 'H':
+                    if (!readNumbers(1)) {
+                        return;
+                    }
+                    x = ox + numbers[0];
+                    lineTo(x, y);
+                    break;
+                case 'V':
+                    if (!readNumbers(1)) {
+                        return;
+                    }
+                    y = oy + numbers[0];
+                    lineTo(x, y);
+                    break;
+                case 'C':
+                    if (!readNumbers(6)) {
+                        return;
+                    }
+                    controlX = ox + numbers[2];
+                    controlY = oy + numbers[3];
+                    cubicTo(ox + numbers[0], oy + numbers[1], controlX, controlY,
+                            ox + numbers[4], oy + numbers[5]);
+                    x = ox + numbers[4];
+                    y = oy + numbers[5];
+                    break;
+                case 'S':
+                    if (!readNumbers(4)) {
+                        return;
+                    }
+                    final boolean smoothCubic = previous == 'C' || previous == 'S';
+                    final float firstX = smoothCubic ? 2 * x - controlX : x;
+                    final float firstY = smoothCubic ? 2 * y - controlY : y;
+                    controlX = ox + numbers[0];
+                    controlY = oy + numbers[1];
+                    cubicTo(firstX, firstY, controlX, controlY, ox + numbers[2], oy + numbers[3]);
+                    x = ox + numbers[2];
+                    y = oy + numbers[3];
+                    break;
+                case 'Q':
+                    if (!readNumbers(4)) {
+                        return;
+                    }
+                    controlX = ox + numbers[0];
+                    controlY = oy + numbers[1];
+                    x = ox + numbers[2];
+                    y = oy + numbers[3];
+                    quadTo(controlX, controlY, x, y);
+                    break;
+                case 'T':
+                    if (!readNumbers(2)) {
+                        return;
+                    }
+                    final boolean smoothQuad = previous == 'Q' || previous == 'T';
+                    controlX = smoothQuad ? 2 * x - controlX : x;
+                    controlY = smoothQuad ? 2 * y - controlY : y;
+                    x = ox + numbers[0];
+                    y = oy + numbers[1];
+                    quadTo(controlX, controlY, x, y);
+                    break;
+                case 'A':
+                    if (!readArc()) {
+                        return;
+                    }
+                    final float endX = ox + numbers[5];
+                    final float endY = oy + numbers[6];
+                    arcTo(x, y, numbers[0], numbers[1], numbers[2], numbers[3] != 0,
+                            numbers[4] != 0, endX, endY);
+                    x = endX;
+                    y = endY;
+                    break;
+                case 'Z':
+                    geometry.close();
+                    x = startX;
+                    y = startY;
+                    break;
+                default:
+                    return;
+            }
+            previous = absolute;
+        }
+    }
+
+    /**
+     * Reads the seven arguments of an arc. The flags may be written without separators.
+     *
+     * @return False if the arguments are invalid.
+     */
+    private boolean readArc() {
+        for (int i = 0; i < 7; i++) {
+            skipSeparators();
+            if (i == 3 || i == 4) {
+                if (position >= text.length()) {
+                    return false;
+                }
+                final char flag = text.charAt(position);
+                if (flag != '0' && flag != '1') {
+                    return false;
+                }
+                numbers[i] = flag - '0';
+                position++;
+            } else if (!readNumber(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the arguments of a command.
+     *
+     * @param count The number of arguments.
+     * @return False if the arguments are invalid.
+     */
+    private boolean readNumbers(final int count) {
+        for (int i = 0; i < count; i++) {
+            skipSeparators();
+            if (!readNumber(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a number at the current position.
+     *
+     * @param index Where to store the number.
+     * @return False if there is no number.
+     */
+    private boolean readNumber(final int index) {
+        final int length = text.length();
+        int i = position;
+        boolean negative = false;
+        if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        double value = 0;
+        boolean digits = false;
+        while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            value = value * 10 + (text.charAt(i) - '0');
+            digits = true;
+            i++;
+        }
+        if (i < length && text.charAt(i) == '.') {
+            i++;
+            double scale = 0.1;
+            while (i < length && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+                value += (text.charAt(i) - '0') * scale;
+                scale *= 0.1;
+                digits = true;
+                i++;
+            }
+        }
+        if (!digits) {
+            return false;
+        }
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            int j = i + 1;
+            boolean negativeExponent = false;
+            if (j < length && (text.charAt(j) == '-' || text.charAt(j) == '+')) {
+                negativeExponent = text.charAt(j) == '-';
+                j++;
+            }
+            int exponent = 0;
+            boolean exponentDigits = false;
+            while (j < length && text.charAt(j) >= '0' && text.charAt(j) <= '9') {
+                exponent = exponent * 10 + (text.charAt(j) - '0');
+                exponentDigits = true;
+                j++;
+            }
+            if (exponentDigits) {
+                value *= Math.pow(10, negativeExponent ? -exponent : exponent);
+                i = j;
+            }
+        }
+        position = i;
+        numbers[index] = (float) (negative ? -value : value);
+        return true;
+    }
+
+    /**
+     * Skips whitespace and a single comma.
+     */
+    private void skipSeparators() {
+        final int length = text.length();
+        boolean comma = false;
+        while (position < length) {
+            final char c = text.charAt(position);
+            if (c == ',' && !comma) {
+                comma = true;
+            } else if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return;
+            }
+            position++;
+        }
+    }
+
+    /**
+     * @param c The character.
+     * @return If the character is a path command.
+     */
+    private static boolean isCommand(final char c) {
+        return "MmLlHhVvCcSsQqTtAaZz".indexOf(c) >= 0;
+    }
+
+    /**
+     * @param c The character.
+     * @return If a number can start with the character.
+     */
+    private static boolean isNumberStart(final char c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+    }
+
+    /**
+     * Parses a list of numbers into the numbers array.
+     *
+     * @param value The list.
+     * @return How many numbers were read.
+     */
+    private int parseNumbers(final String value) {
+        text = value;
+        position = 0;
+        int count = 0;
+        while (true) {
+            skipSeparators();
+            if (count == numbers.length) {
+                final float[] grown = new float[numbers.length * 2];
+                System.arraycopy(numbers, 0, grown, 0, numbers.length);
+                numbers = grown;
+            }
+            if (position >= value.length() || !readNumber(count)) {
+                return count;
+            }
+            count++;
+        }
+    }
+
+    /**
+     * Parses a single number.
+     *
+     * @param value The number.
+     * @return The number or 0 if it is invalid.
+     */
+    private float parseNumber(final String value) {
+        return parseNumbers(value) > 0 ? numbers[0] : 0f;
+    }
+
+    /**
+     * Reads a length attribute in user units.
+     *
+     * @param parser The parser positioned on the element.
+     * @param name   The name of the attribute.
+     * @return The length or 0 if it is missing.
+     * @throws UnsupportedException If the length has a unit other than px.
+     */
+    private float length(final XmlPullParser parser, final String name)
+            throws UnsupportedException {
+        final String value = parser.getAttributeValue(null, name);
+        if (value == null) {
+            return 0f;
+        }
+        text = value.trim();
+        position = 0;
+        if (!readNumber(0)) {
+            return 0f;
+        }
+        final String unit = text.substring(position);
+        if (unit.length() > 0 && !"px".equals(unit)) {
+            throw new UnsupportedException("unit " + unit);
+        }
+        return numbers[0];
+    }
+
+    /**
+     * Parses an opacity.
+     *
+     * @param value The opacity.
+     * @return The opacity in [0,1].
+     */
+    private float parseOpacity(final String value) {
+        return Math.max(0f, Math.min(1f, parseNumber(value)));
+    }
+
+    /**
+     * Parses a color.
+     *
+     * @param value The color.
+     * @param style The style for currentColor.
+     * @return The color as an opaque ARGB int.
+     * @throws UnsupportedException If the color is a paint server or unknown.
+     */
+    private int parseColor(final String value, final Style style) throws UnsupportedException {
+        if (value.startsWith("#")) {
+            try {
+                if (value.length() == 4) {
+                    final int rgb = Integer.parseInt(value.substring(1), 16);
+                    return Color.rgb(((rgb >> 8) & 0xf) * 0x11, ((rgb >> 4) & 0xf) * 0x11,
+                            (rgb & 0xf) * 0x11);
+                }
+                if (value.length() == 7) {
+                    return 0xff000000 | Integer.parseInt(value.substring(1), 16);
+                }
+            } catch (NumberFormatException e) {
+                throw new UnsupportedException("color " + value);
+            }
+            throw new UnsupportedException("color " + value);
+        }
+        if (value.startsWith("rgb(") && value.endsWith(")")) {
+            final String channels = value.substring(4, value.length() - 1);
+            final boolean percent = channels.indexOf('%') >= 0;
+            if (parseNumbers(channels.replace('%', ' ')) != 3) {
+                throw new UnsupportedException("color " + value);
+            }
+            final float scale = percent ? 2.55f : 1f;
+            return Color.rgb(channel(numbers[0] * scale), channel(numbers[1] * scale),
+                    channel(numbers[2] * scale));
+        }
+        switch (value.toLowerCase()) {
+            case "currentcolor":
+                return style.color;
+            case "black":
+                return Color.BLACK;
+            case "white":
+                return Color.WHITE;
+            case "red":
+                return 0xffff0000;
+            case "lime":
+                return 0xff00ff00;
+            case "blue":
+                return 0xff0000ff;
+            case "green":
+                return 0xff008000;
+            case "yellow":
+                return 0xffffff00;
+            case "cyan":
+            case "aqua":
+                return 0xff00ffff;
+            case "magenta":
+            case "fuchsia":
+                return 0xffff00ff;
+            case "gray":
+            case "grey":
+                return 0xff808080;
+            case "silver":
+                return 0xffc0c0c0;
+            case "maroon":
+                return 0xff800000;
+            case "olive":
+                return 0xff808000;
+            case "navy":
+                return 0xff000080;
+            case "purple":
+                return 0xff800080;
+            case "teal":
+                return 0xff008080;
+            case "orange":
+                return 0xffffa500;
+            default:
+                throw new UnsupportedException("color " + value);
+        }
+    }
+
+    /**
+     * @param value A color channel.
+     * @return The channel clamped to [0,255].
+     */
+    private static int channel(final float value) {
+        return Math.max(0, Math.min(255, Math.round(value)));
+    }
+
+    /**
+     * Parses a transform list and appends it to the transform of the current element.
+     *
+     * @param value The transform list.
+     * @throws UnsupportedException If the transform is invalid.
+     */
+    private void parseTransform(final String value) throws UnsupportedException {
+        int start = 0;
+        while (true) {
+            final int open = value.indexOf('(', start);
+            if (open < 0) {
+                return;
+            }
+            final int close = value.indexOf(')', open);
+            if (close < 0) {
+                throw new UnsupportedException("transform " + value);
+            }
+            final String type = value.substring(start, open).replace(',', ' ').trim();
+            final int count = parseNumbers(value.substring(open + 1, close));
+            final float[] op = operation;
+            op[0] = 1;
+            op[1] = 0;
+            op[2] = 0;
+            op[3] = 1;
+            op[4] = 0;
+            op[5] = 0;
+            if ("matrix".equals(type) && count == 6) {
+                System.arraycopy(numbers, 0, op, 0, MATRIX_SIZE);
+            } else if ("translate".equals(type) && (count == 1 || count == 2)) {
+                op[4] = numbers[0];
+                op[5] = count == 2 ? numbers[1] : 0;
+            } else if ("scale".equals(type) && (count == 1 || count == 2)) {
+                op[0] = numbers[0];
+                op[3] = count == 2 ? numbers[1] : numbers[0];
+            } else if ("rotate".equals(type) && (count == 1 || count == 3)) {
+                final double angle = Math.toRadians(numbers[0]);
+                final float cos = (float) Math.cos(angle);
+                final float sin = (float) Math.sin(angle);
+                final float cx = count == 3 ? numbers[1] : 0;
+                final float cy = count == 3 ? numbers[2] : 0;
+                op[0] = cos;
+                op[1] = sin;
+                op[2] = -sin;
+                op[3] = cos;
+                op[4] = cx - cos * cx + sin * cy;
+                op[5] = cy - sin * cx - cos * cy;
+            } else if ("skewX".equals(type) && count == 1) {
+                op[2] = (float) Math.tan(Math.toRadians(numbers[0]));
+            } else if ("skewY".equals(type) && count == 1) {
+                op[1] = (float) Math.tan(Math.toRadians(numbers[0]));
+            } else {
+                throw new UnsupportedException("transform " + value);
+            }
+            concat(matrix, op);
+            start = close + 1;
+        }
+    }
+
+    /**
+     * Post-multiplies a transform into another one.
+     *
+     * @param m The transform to be changed.
+     * @param n The transform to be applied first to the points.
+     */
+    private static void concat(final float[] m, final float[] n) {
+        final float a = m[0] * n[0] + m[2] * n[1];
+        final float b = m[1] * n[0] + m[3] * n[1];
+        final float c = m[0] * n[2] + m[2] * n[3];
+        final float d = m[1] * n[2] + m[3] * n[3];
+        final float e = m[0] * n[4] + m[2] * n[5] + m[4];
+        final float f = m[1] * n[4] + m[3] * n[5] + m[5];
+        m[0] = a;
+        m[1] = b;
+        m[2] = c;
+        m[3] = d;
+        m[4] = e;
+        m[5] = f;
+    }
+
+    /**
+     * Starts a contour at a point in user space.
+     */
+    private void moveTo(final float x, final float y) {
+        final float[] m = matrix;
+        geometry.moveTo(m[0] * x + m[2] * y + m[4], m[1] * x + m[3] * y + m[5]);
+    }
+
+    /**
+     * Adds a line to a point in user space.
+     */
+    private void lineTo(final float x, final float y) {
+        final float[] m = matrix;
+        geometry.lineTo(m[0] * x + m[2] * y + m[4], m[1] * x + m[3] * y + m[5]);
+    }
+
+    /**
+     * Adds a quadratic bezier in user space.
+     */
+    private void quadTo(final float x1, final float y1, final float x2, final float y2) {
+        final float[] m = matrix;
+        geometry.quadTo(m[0] * x1 + m[2] * y1 + m[4], m[1] * x1 + m[3] * y1 + m[5],
+                m[0] * x2 + m[2] * y2 + m[4], m[1] * x2 + m[3] * y2 + m[5]);
+    }
+
+    /**
+     * Adds a cubic bezier in user space.
+     */
+    private void cubicTo(final float x1, final float y1, final float x2, final float y2,
+                         final float x3, final float y3) {
+        final float[] m = matrix;
+        geometry.cubicTo(m[0] * x1 + m[2] * y1 + m[4], m[1] * x1 + m[3] * y1 + m[5],
+                m[0] * x2 + m[2] * y2 + m[4], m[1] * x2 + m[3] * y2 + m[5],
+                m[0] * x3 + m[2] * y3 + m[4], m[1] * x3 + m[3] * y3 + m[5]);
+    }
+
+    /**
+     * Adds an elliptical arc in user space as cubic beziers of at most a quarter turn each.
+     */
+    private void arcTo(final float x1, final float y1, float rx, float ry, final float angle,
+                       final boolean largeArc, final boolean sweep, final float x2,
+                       final float y2) {
+        if (x1 == x2 && y1 == y2) {
+            return;
+        }
+        if (rx == 0 || ry == 0) {
+            lineTo(x2, y2);
+            return;
+        }
+        rx = Math.abs(rx);
+        ry = Math.abs(ry);
+        final double phi = Math.toRadians(angle % 360f);
+        final double cos = Math.cos(phi);
+        final double sin = Math.sin(phi);
+        final double dx = (x1 - x2) / 2.0;
+        final double dy = (y1 - y2) / 2.0;
+        final double x1p = cos * dx + sin * dy;
+        final double y1p = -sin * dx + cos * dy;
+
+        double rxs = rx * rx;
+        double rys = ry * ry;
+        final double lambda = x1p * x1p / rxs + y1p * y1p / rys;
+        if (lambda > 1) {
+            final double root = Math.sqrt(lambda);
+            rx *= root;
+            ry *= root;
+            rxs = rx * rx;
+            rys = ry * ry;
+        }
+        final double numerator = rxs * rys - rxs * y1p * y1p - rys * x1p * x1p;
+        final double denominator = rxs * y1p * y1p + rys * x1p * x1p;
+        double coefficient = Math.sqrt(Math.max(0, numerator / denominator));
+        if (largeArc == sweep) {
+            coefficient = -coefficient;
+        }
+        final double cxp = coefficient * rx * y1p / ry;
+        final double cyp = -coefficient * ry * x1p / rx;
+        final double cx = cos * cxp - sin * cyp + (x1 + x2) / 2.0;
+        final double cy = sin * cxp + cos * cyp + (y1 + y2) / 2.0;
+
+        final double ux = (x1p - cxp) / rx;
+        final double uy = (y1p - cyp) / ry;
+        final double vx = (-x1p - cxp) / rx;
+        final double vy = (-y1p - cyp) / ry;
+        double theta = Math.atan2(uy, ux);
+        double delta = Math.atan2(ux * vy - uy * vx, ux * vx + uy * vy);
+        if (!sweep && delta > 0) {
+            delta -= 2 * Math.PI;
+        } else if (sweep && delta < 0) {
+            delta += 2 * Math.PI;
+        }
+
+        final int segments = (int) Math.ceil(Math.abs(delta) / (Math.PI / 2) - 1e-7);
+        final double step = delta / segments;
+        final double t = 4.0 / 3.0 * Math.tan(step / 4);
+        for (int i = 0; i < segments; i++) {
+            final double cos1 = Math.cos(theta);
+            final double sin1 = Math.sin(theta);
+            theta += step;
+            final double cos2 = Math.cos(theta);
+            final double sin2 = Math.sin(theta);
+            final double e1x = cos1 - t * sin1;
+            final double e1y = sin1 + t * cos1;
+            final double e2x = cos2 + t * sin2;
+            final double e2y = sin2 - t * cos2;
+            final boolean last = i == segments - 1;
+            cubicTo((float) (cx + rx * cos * e1x - ry * sin * e1y),
+                    (float) (cy + rx * sin * e1x + ry * cos * e1y),
+                    (float) (cx + rx * cos * e2x - ry * sin * e2y),
+                    (float) (cy + rx * sin * e2x + ry * cos * e2y),
+                    last ? x2 : (float) (cx + rx * cos * cos2 - ry * sin * sin2),
+                    last ? y2 : (float) (cy + rx * sin * cos2 + ry * cos * sin2));
+        }
+    }
+
+    /**
+     * The inherited style of an element.
+     */
+    private static final class Style {
+        /**
+         * If the shapes are filled.
+         */
+        boolean hasFill = true;
+        /**
+         * The fill color.
+         */
+        int fill = Color.BLACK;
+        /**
+         * The opacity of the fill.
+         */
+        float fillOpacity = 1f;
+        /**
+         * If the shapes are stroked.
+         */
+        boolean hasStroke;
+        /**
+         * The stroke color.
+         */
+        int stroke = Color.BLACK;
+        /**
+         * The opacity of the stroke.
+         */
+        float strokeOpacity = 1f;
+        /**
+         * The value of currentColor.
+         */
+        int color = Color.BLACK;
+        /**
+         * The cap of the stroke.
+         */
+        Paint.Cap cap = Paint.Cap.BUTT;
+        /**
+         * The join of the stroke.
+         */
+        Paint.Join join = Paint.Join.MITER;
+        /**
+         * The miter limit of the stroke.
+         */
+        float miter = 4f;
+        /**
+         * If the shapes are visible.
+         */
+        boolean visible = true;
+
+        /**
+         * Copies the style of the parent.
+         *
+         * @param parent The style of the parent element.
+         */
+        void inherit(final Style parent) {
+            hasFill = parent.hasFill;
+            fill = parent.fill;
+            fillOpacity = parent.fillOpacity;
+            hasStroke = parent.hasStroke;
+            stroke = parent.stroke;
+            strokeOpacity = parent.strokeOpacity;
+            color = parent.color;
+            cap = parent.cap;
+            join = parent.join;
+            miter = parent.miter;
+            visible = parent.visible;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.eftimoff.androipathview;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
@@ -18,8 +19,19 @@ import com.caverock.androidsvg.PreserveAspectRatio;
 import com.caverock.androidsvg.SVG;
 import com.caverock.androidsvg.SVGParseException;
 
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * Util class to init and get paths from svg.
@@ -29,18 +41,95 @@ public class SvgUtils {
      * It is for logging purposes.
      */
     private static final String LOG_TAG = "SVGUtils";
+    /**
+     * The first number of paths published to a listener. It doubles with each chunk.
+     */
+    private static final int FIRST_CHUNK_SIZE = 16;
+    /**
+     * The largest number of paths published to a listener at once.
+     */
+    private static final int MAX_CHUNK_SIZE = 256;
+    /**
+     * The number of paths a measuring thread gets at least.
+     */
+    private static final int MIN_PATHS_PER_THREAD = 32;
+    /**
+     * The largest number of threads that measure the paths of one extraction.
+     */
+    private static final int MEASURE_THREADS =
+            Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    /**
+     * The threads that measure the paths, shared by all the extractions.
+     */
+    private static Executor sMeasurePool;
     /**
      * All the paths with their attributes from the svg.
      */
-    private final List<SvgPath> mPaths = new ArrayList<>();
+    private List<SvgPath> mPaths = new ArrayList<>();
+    /**
+     * The captured paths that are not measured yet.
+     */
+    private final List<SvgPath> mPending = new ArrayList<>();
+    /**
+     * The ids of the paths that are measured during the extraction, or null for all paths.
+     */
+    private Set<String> mMeasuredIds;
+    /**
+     * The time the last extraction took to measure the paths.
+     */
+    private long mMeasureNanos;
+    /**
+     * The number of paths the last extraction measured.
+     */
+    private int mMeasuredCount;
+    /**
+     * The number of paths the last extraction did not measure.
+     */
+    private int mDeferredCount;
+    /**
+     * The styles of the paths of the current extraction.
+     */
+    private StyleTable mStyles = new StyleTable();
+    /**
+     * The geometry of the paths of the current extraction.
+     */
+    private PathGeometry mGeometry = new PathGeometry();
+    /**
+     * The listener for the paths of the current extraction.
+     */
+    private PathsListener mListener;
+    /**
+     * The number of paths already published to the listener.
+     */
+    private int mPublished;
+    /**
+     * The number of paths to collect before they are published.
+     */
+    private int mChunkSize;
     /**
      * The paint provided from the view.
      */
     private final Paint mSourcePaint;
     /**
-     * The init svg.
+     * The parsed svg document, or null. It is parsed by the loader and drawn by the view.
+     */
+    private volatile SVG mSvg;
+    /**
+     * The resources to read the svg from.
      */
-    private SVG mSvg;
+    private Resources mResources;
+    /**
+     * The raw resource id of the svg.
+     */
+    private int mSvgResource;
+    /**
+     * The viewBox of the svg.
+     */
+    private volatile RectF mViewBox;
+    /**
+     * False once the svg was found to use something the path reader does not support.
+     */
+    private boolean mReaderSupported = true;
 
     /**
      * Init the SVGUtils with a paint for coloring.
@@ -52,24 +141,92 @@ public class SvgUtils {
     }
 
     /**
-     * Loading the svg from the resources.
+     * Loading the svg from the resources. The paths are read straight from the resource when
+     * possible, the svg document is only parsed when it has to be rendered. Loading another
+     * resource drops the previous document.
      *
      * @param context     Context object to get the resources.
      * @param svgResource int resource id of the svg.
      */
     public void load(Context context, int svgResource) {
-        if (mSvg != null) 
+        load(context.getApplicationContext().getResources(), svgResource);
+    }
+
+    /**
+     * Loading the svg from the resources.
+     *
+     * @param resources   The resources to read the svg from.
+     * @param svgResource int resource id of the svg.
+     */
+    void load(Resources resources, int svgResource) {
+        if (mResources != null && mSvgResource == svgResource)
+            return;
+        mResources = resources;
+        mSvgResource = svgResource;
+        mSvg = null;
+        mViewBox = null;
+        mReaderSupported = true;
+    }
+
+    /**
+     * Reads only the viewBox from the root element of an svg.
+     *
+     * @param resources   The resources to read the svg from.
+     * @param svgResource The raw resource id of the svg.
+     * @return The viewBox, or null if it can not be read.
+     */
+    static RectF readViewBox(final Resources resources, final int svgResource) {
+        InputStream input = null;
+        try {
+            input = resources.openRawResource(svgResource);
+            return SvgPathReader.readViewBox(input);
+        } catch (IOException | XmlPullParserException e) {
+            Log.d(LOG_TAG, "Could not read the viewBox", e);
+            return null;
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException ignored) {
+                    // Nothing was read from it.
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses the svg document if it is not parsed yet. It is needed for rendering the svg.
+     * Only called on a loader thread, the document is never parsed while drawing.
+     */
+    synchronized void loadDocument() {
+        if (mSvg != null || mResources == null)
             return;
         try {
-            mSvg = SVG.getFromResource(context, svgResource);
-            mSvg.setDocumentPreserveAspectRatio(PreserveAspectRatio.UNSCALED);
+            final SVG svg = SVG.getFromResource(mResources, mSvgResource);
+            svg.setDocumentPreserveAspectRatio(PreserveAspectRatio.UNSCALED);
+            mViewBox = svg.getDocumentViewBox();
+            mSvg = svg;
         } catch (SVGParseException e) {
             Log.e(LOG_TAG, "Could not load specified SVG resource", e);
         }
     }
 
     /**
-     * Draw the svg to the canvas.
+     * @return The viewBox of the svg, or null if it was not read yet.
+     */
+    RectF getViewBox() {
+        return mViewBox;
+    }
+
+    /**
+     * @return If the svg document is parsed and can be drawn.
+     */
+    boolean isDocumentLoaded() {
+        return mSvg != null;
+    }
+
+    /**
+     * Draw the svg to the canvas. Nothing is drawn until the document is loaded.
      *
      * @param canvas The canvas to be drawn.
      * @param width  The width of the canvas.
@@ -88,7 +245,242 @@ public class SvgUtils {
      * @return All the paths from the svg.
      */
     public List<SvgPath> getPathsForViewport(final int width, final int height) {
+        return getPathsForViewport(width, height, null);
+    }
+
+    /**
+     * Catch all the paths of the svg and publish them in chunks while they are extracted, so the
+     * first paths can be shown before the whole svg is processed.
+     *
+     * @param width    - the width to scale down the view to,
+     * @param height   - the height to scale down the view to,
+     * @param listener - receives the paths in document order on the calling thread, or null.
+     * @return All the paths from the svg.
+     */
+    public List<SvgPath> getPathsForViewport(final int width, final int height,
+                                             final PathsListener listener) {
         final float strokeWidth = mSourcePaint.getStrokeWidth();
+        startExtraction(listener);
+        try {
+            if (mReaderSupported && mResources != null) {
+                if (readPaths(width, height, strokeWidth)) {
+                    mGeometry.trimToSize();
+                    publishPaths();
+                    return mPaths;
+                }
+                if (mPublished > 0) {
+                    listener.onPathsDiscarded();
+                }
+                startExtraction(listener);
+            }
+            interceptPaths(width, height, strokeWidth);
+            mGeometry.trimToSize();
+            publishPaths();
+            return mPaths;
+        } finally {
+            mListener = null;
+        }
+    }
+
+    /**
+     * Adds a captured path and publishes a chunk to the listener when it is full.
+     *
+     * @param svgPath The captured path, it is measured before it is published.
+     */
+    void addPath(final SvgPath svgPath) {
+        mPending.add(svgPath);
+        if (mListener != null && mPending.size() >= mChunkSize) {
+            publishPaths();
+            mChunkSize = Math.min(mChunkSize * 2, MAX_CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * Set which paths are measured during the extraction, by the id of their element or of a
+     * group it is in. The other paths are measured when they are animated, a path that is only
+     * drawn complete is never measured.
+     *
+     * @param ids The ids, or null to measure all the paths.
+     */
+    void setMeasuredIds(final Set<String> ids) {
+        mMeasuredIds = ids;
+    }
+
+    /**
+     * @return The time the last extraction took to measure the paths, in nanoseconds.
+     */
+    long getMeasureNanos() {
+        return mMeasureNanos;
+    }
+
+    /**
+     * @return The number of paths the last extraction measured.
+     */
+    int getMeasuredCount() {
+        return mMeasuredCount;
+    }
+
+    /**
+     * @return The number of paths the last extraction left to be measured when animated.
+     */
+    int getDeferredCount() {
+        return mDeferredCount;
+    }
+
+    /**
+     * Adds an extracted path with its interned style.
+     *
+     * @param geometryIndex The index of the path in the geometry of the extraction.
+     * @param elementIds    The id of the element and of its groups, or null.
+     * @param color         The color with the alpha.
+     * @param width         The stroke width.
+     * @param cap           The stroke cap.
+     * @param join          The stroke join.
+     * @param miter         The miter limit.
+     */
+    void addPath(final int geometryIndex, final String[] elementIds, final int color,
+                 final float width, final Paint.Cap cap, final Paint.Join join,
+                 final float miter) {
+        addPath(new SvgPath(mGeometry, geometryIndex, elementIds, mStyles,
+                mStyles.intern(color, width, cap, join, miter)));
+    }
+
+    /**
+     * @return The geometry the paths of the current extraction are built into.
+     */
+    PathGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    /**
+     * Starts collecting the paths from the beginning.
+     *
+     * @param listener The listener for the chunks, or null.
+     */
+    private void startExtraction(final PathsListener listener) {
+        mPaths = new ArrayList<>();
+        mPending.clear();
+        mMeasureNanos = 0;
+        mMeasuredCount = 0;
+        mDeferredCount = 0;
+        mStyles = new StyleTable();
+        mGeometry = new PathGeometry();
+        mListener = listener;
+        mPublished = 0;
+        mChunkSize = FIRST_CHUNK_SIZE;
+    }
+
+    /**
+     * Measures the captured paths and publishes the paths that were not published yet.
+     */
+    private void publishPaths() {
+        measurePending();
+        final int size = mPaths.size();
+        if (mListener != null && size > mPublished) {
+            mListener.onPathsExtracted(mPaths.subList(mPublished, size));
+            mPublished = size;
+        }
+    }
+
+    /**
+     * Measures the captured paths across the measuring threads while the capture waits, and
+     * moves them to the extracted paths. Paths without a measured id are left unmeasured.
+     */
+    private void measurePending() {
+        final int count = mPending.size();
+        if (count == 0) {
+            return;
+        }
+        final long start = System.nanoTime();
+        final int[] indices = new int[count];
+        int measured = 0;
+        for (int i = 0; i < count; i++) {
+            final SvgPath svgPath = mPending.get(i);
+            if (mMeasuredIds == null || svgPath.hasElementId(mMeasuredIds)) {
+                indices[measured++] = svgPath.geometryIndex;
+            }
+        }
+        measureParallel(mGeometry, indices, measured);
+        for (int i = 0; i < count; i++) {
+            mPending.get(i).updateLength();
+        }
+        mPaths.addAll(mPending);
+        mPending.clear();
+        mMeasureNanos += System.nanoTime() - start;
+        mMeasuredCount += measured;
+        mDeferredCount += count - measured;
+    }
+
+    /**
+     * Measures paths of a geometry on the measuring threads and the calling thread. Every
+     * thread takes every n-th path, so long and short paths are spread evenly.
+     *
+     * @param geometry The geometry, no paths are appended to it meanwhile.
+     * @param indices  The indices of the paths.
+     * @param count    The number of indices.
+     */
+    private static void measureParallel(final PathGeometry geometry, final int[] indices,
+                                        final int count) {
+        final int threads = Math.max(1, Math.min(MEASURE_THREADS, count / MIN_PATHS_PER_THREAD));
+        final CountDownLatch done = new CountDownLatch(threads - 1);
+        for (int t = 1; t < threads; t++) {
+            final int first = t;
+            getMeasurePool().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = first; i < count; i += threads) {
+                            geometry.measurePath(indices[i]);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        for (int i = 0; i < count; i += threads) {
+            geometry.measurePath(indices[i]);
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The threads that measure the paths, created when they are first needed.
+     */
+    private static synchronized Executor getMeasurePool() {
+        if (sMeasurePool == null) {
+            sMeasurePool = Executors.newFixedThreadPool(MEASURE_THREADS - 1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "SVG Measure");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sMeasurePool;
+    }
+
+    /**
+     * Render the svg document to a canvas that catches all the paths.
+     *
+     * @param width       The width of the viewport.
+     * @param height      The height of the viewport.
+     * @param strokeWidth Width of the path to add to scaling.
+     */
+    private void interceptPaths(final int width, final int height, final float strokeWidth) {
+        loadDocument();
         Canvas canvas = new Canvas() {
             private final Matrix mMatrix = new Matrix();
 
@@ -109,16 +501,90 @@ public class SvgUtils {
                 //noinspection deprecation
                 getMatrix(mMatrix);
                 path.transform(mMatrix, dst);
-                paint.setAntiAlias(true);
-                paint.setStyle(Paint.Style.STROKE);
-                paint.setStrokeWidth(strokeWidth);
-                mPaths.add(new SvgPath(dst, paint));
+                // The paint belongs to AndroidSVG and is reused, only its style is copied.
+                mGeometry.addSampled(dst);
+                addPath(mGeometry.endPath(), null, paint.getColor(), strokeWidth,
+                        paint.getStrokeCap(), paint.getStrokeJoin(), paint.getStrokeMiter());
             }
         };
 
         rescaleCanvas(width, height, strokeWidth, canvas);
+    }
 
-        return mPaths;
+    /**
+     * Read the paths with the streaming reader, without parsing and rendering the document.
+     *
+     * @param width       The width of the viewport.
+     * @param height      The height of the viewport.
+     * @param strokeWidth Width of the path to add to scaling.
+     * @return False if the svg is not supported by the reader.
+     */
+    private boolean readPaths(final int width, final int height, final float strokeWidth) {
+        final SvgPathReader reader = new SvgPathReader(width, height, strokeWidth);
+        InputStream input = null;
+        try {
+            input = mResources.openRawResource(mSvgResource);
+            reader.read(input, this);
+            mViewBox = reader.getViewBox();
+            return true;
+        } catch (SvgPathReader.UnsupportedException e) {
+            Log.d(LOG_TAG, "Falling back to AndroidSVG, not supported: " + e.getMessage());
+        } catch (IOException | XmlPullParserException e) {
+            Log.d(LOG_TAG, "Falling back to AndroidSVG", e);
+        } finally {
+            if (input != null) {
+                try {
+                    input.close();
+                } catch (IOException e) {
+                    Log.e(LOG_TAG, "Could not close the SVG resource", e);
+                }
+            }
+        }
+        mReaderSupported = false;
+        return false;
+    }
+
+    /**
+     * Computes the scale of the svg in the viewport. The stroke width is added to the viewBox so
+     * the strokes at the edges are not clipped.
+     *
+     * @param viewBox     The viewBox of the svg.
+     * @param width       The width of the viewport.
+     * @param height      The height of the viewport.
+     * @param strokeWidth Width of the path to add to scaling.
+     * @return The scale.
+     */
+    static float getViewportScale(final RectF viewBox, final int width, final int height,
+                                  final float strokeWidth) {
+        return Math.min(width / (viewBox.width() + strokeWidth),
+                height / (viewBox.height() + strokeWidth));
+    }
+
+    /**
+     * Computes the matrix that maps paths extracted for one viewport to another viewport, the
+     * same way a new extraction would scale and center them.
+     *
+     * @param viewBox     The viewBox of the svg.
+     * @param fromWidth   The width of the viewport the paths were extracted for.
+     * @param fromHeight  The height of the viewport the paths were extracted for.
+     * @param toWidth     The width of the new viewport.
+     * @param toHeight    The height of the new viewport.
+     * @param strokeWidth Width of the path the paths were scaled with.
+     * @param matrix      Receives the matrix.
+     * @return The scale of the matrix.
+     */
+    static float getViewportMatrix(final RectF viewBox, final int fromWidth, final int fromHeight,
+                                   final int toWidth, final int toHeight, final float strokeWidth,
+                                   final Matrix matrix) {
+        final float fromScale = getViewportScale(viewBox, fromWidth, fromHeight, strokeWidth);
+        final float toScale = getViewportScale(viewBox, toWidth, toHeight, strokeWidth);
+        final float scale = toScale / fromScale;
+        matrix.setTranslate(-(fromWidth - viewBox.width() * fromScale) / 2f,
+                -(fromHeight - viewBox.height() * fromScale) / 2f);
+        matrix.postScale(scale, scale);
+        matrix.postTranslate((toWidth - viewBox.width() * toScale) / 2f,
+                (toHeight - viewBox.height() * toScale) / 2f);
+        return scale;
     }
 
     /**
@@ -130,23 +596,192 @@ public class SvgUtils {
      * @param canvas      The canvas to be drawn.
      */
     private void rescaleCanvas(int width, int height, float strokeWidth, Canvas canvas) {
-        if (mSvg == null) 
+        final SVG svg = mSvg;
+        if (svg == null) 
             return;
-        final RectF viewBox = mSvg.getDocumentViewBox();
+        final RectF viewBox = svg.getDocumentViewBox();
 
-        final float scale = Math.min(width
-                        / (viewBox.width() + strokeWidth),
-                height / (viewBox.height() + strokeWidth));
+        final float scale = getViewportScale(viewBox, width, height, strokeWidth);
 
         canvas.translate((width - viewBox.width() * scale) / 2.0f,
                 (height - viewBox.height() * scale) / 2.0f);
         canvas.scale(scale, scale);
 
-        mSvg.renderToCanvas(canvas);
+        svg.renderToCanvas(canvas);
+    }
+
+    /**
+     * Pairs the contours of two svgs and resamples every pair to the same number of points, so
+     * the first svg can be morphed into the second one. The longest contours are paired first,
+     * each with the contour of the other svg that is closest in position and length. A contour
+     * without a partner grows from or shrinks into its center.
+     *
+     * @param from The paths of the first svg.
+     * @param to   The paths of the second svg, extracted for the same viewport.
+     * @return The morph.
+     */
+    static PathMorph createMorph(final List<SvgPath> from, final List<SvgPath> to) {
+        final List<MorphContour> fromContours = sampleContours(from);
+        final List<MorphContour> toContours = sampleContours(to);
+        final Comparator<MorphContour> longestFirst = new Comparator<MorphContour>() {
+            @Override
+            public int compare(MorphContour lhs, MorphContour rhs) {
+                return Float.compare(rhs.length, lhs.length);
+            }
+        };
+        Collections.sort(fromContours, longestFirst);
+        Collections.sort(toContours, longestFirst);
+
+        final List<MorphContour> pairs = new ArrayList<>();
+        final boolean[] paired = new boolean[toContours.size()];
+        for (MorphContour source : fromContours) {
+            int best = -1;
+            float bestCost = Float.MAX_VALUE;
+            for (int j = 0; j < toContours.size(); j++) {
+                if (!paired[j]) {
+                    final float cost = source.getPairingCost(toContours.get(j));
+                    if (cost < bestCost) {
+                        bestCost = cost;
+                        best = j;
+                    }
+                }
+            }
+            pairs.add(source);
+            if (best >= 0) {
+                paired[best] = true;
+                pairs.add(toContours.get(best));
+            } else {
+                pairs.add(source.toCenter());
+            }
+        }
+        for (int j = 0; j < toContours.size(); j++) {
+            if (!paired[j]) {
+                pairs.add(toContours.get(j).toCenter());
+                pairs.add(toContours.get(j));
+            }
+        }
+
+        final int contours = pairs.size() / 2;
+        final int[] starts = new int[contours + 1];
+        final boolean[] closed = new boolean[contours];
+        for (int c = 0; c < contours; c++) {
+            final MorphContour source = pairs.get(2 * c);
+            final MorphContour target = pairs.get(2 * c + 1);
+            closed[c] = source.closed && target.closed;
+            starts[c + 1] = starts[c] + Math.max(source.count, target.count);
+        }
+        final float[] fromPoints = new float[starts[contours] * 2];
+        final float[] toPoints = new float[starts[contours] * 2];
+        final float[] resampled = new float[MorphContour.MAX_POINTS * 2];
+        for (int c = 0; c < contours; c++) {
+            final int count = starts[c + 1] - starts[c];
+            pairs.get(2 * c).resample(count, closed[c], fromPoints, starts[c] * 2);
+            pairs.get(2 * c + 1).resample(count, closed[c], resampled, 0);
+            alignContour(fromPoints, starts[c] * 2, resampled, count, closed[c], toPoints);
+        }
+        return new PathMorph(fromPoints, toPoints, starts, closed);
+    }
+
+    /**
+     * Samples the contours of the paths of an svg at even distances.
+     *
+     * @param paths The paths of the svg.
+     * @return The sampled contours.
+     */
+    private static List<MorphContour> sampleContours(final List<SvgPath> paths) {
+        final List<MorphContour> contours = new ArrayList<>();
+        final Path path = new Path();
+        final PathMeasure measure = new PathMeasure();
+        final float[] position = new float[2];
+        for (SvgPath svgPath : paths) {
+            if (svgPath.geometry != null) {
+                svgPath.geometry.trim(svgPath.geometryIndex, Float.POSITIVE_INFINITY, path);
+            } else {
+                path.reset();
+                svgPath.measure.getSegment(0.0f, svgPath.length, path, true);
+            }
+            measure.setPath(path, false);
+            do {
+                final float length = measure.getLength();
+                if (length <= 0) {
+                    continue;
+                }
+                final int count = Math.max(2, Math.min(MorphContour.MAX_POINTS,
+                        (int) Math.ceil(length / MorphContour.SAMPLE_DISTANCE) + 1));
+                final float[] points = new float[count * 2];
+                for (int i = 0; i < count; i++) {
+                    measure.getPosTan(length * i / (count - 1), position, null);
+                    points[2 * i] = position[0];
+                    points[2 * i + 1] = position[1];
+                }
+                contours.add(new MorphContour(points, count, length, measure.isClosed()));
+            } while (measure.nextContour());
+        }
+        return contours;
+    }
+
+    /**
+     * Copies the points of a target contour so they start at the point and run in the direction
+     * that is closest to the source contour, which keeps the morph from twisting.
+     *
+     * @param source       The resampled points of the source.
+     * @param sourceOffset The index of the first coordinate of the source contour.
+     * @param target       The resampled points of the target, from index 0.
+     * @param count        The number of points of both contours.
+     * @param closed       If the contours are closed, so any point can be the start.
+     * @param out          Receives the aligned points at the offset of the source.
+     */
+    private static void alignContour(final float[] source, final int sourceOffset,
+                                     final float[] target, final int count, final boolean closed,
+                                     final float[] out) {
+        final int step = Math.max(1, count / 32);
+        final int shifts = closed ? count : 1;
+        int bestShift = 0;
+        boolean bestReversed = false;
+        float bestCost = Float.MAX_VALUE;
+        for (int r = 0; r < 2; r++) {
+            final boolean reversed = r == 1;
+            for (int shift = 0; shift < shifts; shift += step) {
+                float cost = 0;
+                for (int i = 0; i < count && cost < bestCost; i++) {
+                    final int j = alignedIndex(i, shift, count, reversed);
+                    final float dx = source[sourceOffset + 2 * i] - target[2 * j];
+                    final float dy = source[sourceOffset + 2 * i + 1] - target[2 * j + 1];
+                    cost += dx * dx + dy * dy;
+                }
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestShift = shift;
+                    bestReversed = reversed;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            final int j = alignedIndex(i, bestShift, count, bestReversed);
+            out[sourceOffset + 2 * i] = target[2 * j];
+            out[sourceOffset + 2 * i + 1] = target[2 * j + 1];
+        }
+    }
+
+    /**
+     * @param index    The index of the point in the source contour.
+     * @param shift    The start of the target contour.
+     * @param count    The number of points.
+     * @param reversed If the target contour runs backwards.
+     * @return The index of the paired point in the target contour.
+     */
+    private static int alignedIndex(final int index, final int shift, final int count,
+                                    final boolean reversed) {
+        final int i = reversed ? count - 1 - index : index;
+        return (i + shift) % count;
     }
 
     /**
      * Path with bounds for scalling , length and paint.
+     * <p/>
+     * The paths of an svg read their geometry from a shared {@link PathGeometry} and only hold an
+     * android Path while some of them is drawn. Paths set directly on the view keep a
+     * PathMeasure of their own.
      */
     public static class SvgPath {
 
@@ -161,17 +796,33 @@ public class SvgUtils {
                 new Region(Integer.MIN_VALUE, Integer.MIN_VALUE,
                         Integer.MAX_VALUE, Integer.MAX_VALUE);
         /**
-         * The path itself.
+         * The largest number of released Path objects that are kept for reuse.
+         */
+        private static final int MAX_POOL_SIZE = 64;
+        /**
+         * Released Path objects of svg paths.
+         */
+        private static final List<Path> POOL = new ArrayList<>();
+        /**
+         * The trimmed path, or null for an svg path that is not drawn.
          */
-        final Path path;
+        Path path;
         /**
-         * The paint to be drawn later.
+         * The paint to be drawn later. Shared by the paths with the same style.
          */
         final Paint paint;
+        /**
+         * The index of the style in the style table, or -1 for a path with its own paint.
+         */
+        final int styleIndex;
         /**
          * The length of the path.
          */
         float length;
+        /**
+         * The length the path is currently trimmed to.
+         */
+        float trimmedLength;
         /**
          * Listener to notify that an animation step has happened.
          */
@@ -181,9 +832,31 @@ public class SvgUtils {
          */
         final Rect bounds;
         /**
-         * The measure of the path, we can use it later to get segment of it.
+         * The measure of the path, we can use it later to get segment of it. Null for an svg
+         * path.
          */
         final PathMeasure measure;
+        /**
+         * The shared geometry of an svg path, or null.
+         */
+        final PathGeometry geometry;
+        /**
+         * The index of the path in the geometry.
+         */
+        final int geometryIndex;
+        /**
+         * The id of the svg element and the ids of its groups from the inside out, or null.
+         */
+        final String[] elementIds;
+        /**
+         * If the path is animated, otherwise it is always drawn complete.
+         */
+        boolean animated = true;
+        /**
+         * If the length is known. The measurement of an svg path can be deferred until it is
+         * animated.
+         */
+        private boolean measured;
 
         /**
          * Constructor to add the path and the paint.
@@ -194,14 +867,65 @@ public class SvgUtils {
         SvgPath(Path path, Paint paint) {
             this.path = path;
             this.paint = paint;
+            this.styleIndex = -1;
+            this.geometry = null;
+            this.geometryIndex = -1;
+            this.elementIds = null;
 
             measure = new PathMeasure(path, false);
             this.length = measure.getLength();
+            this.measured = true;
+            // The path is complete until it is trimmed.
+            this.trimmedLength = length;
 
             REGION.setPath(path, MAX_CLIP);
             bounds = REGION.getBounds();
         }
 
+        /**
+         * Constructor for a path of an svg with an interned style.
+         *
+         * @param geometry      The geometry of the svg.
+         * @param geometryIndex The index of the path in the geometry.
+         * @param elementIds    The id of the element and of its groups, or null.
+         * @param styles        The style table of the svg.
+         * @param styleIndex    The index of the style in the table.
+         */
+        SvgPath(PathGeometry geometry, int geometryIndex, String[] elementIds, StyleTable styles,
+                int styleIndex) {
+            this.paint = styles.getPaint(styleIndex);
+            this.styleIndex = styleIndex;
+            this.geometry = geometry;
+            this.geometryIndex = geometryIndex;
+            this.elementIds = elementIds;
+            this.measure = null;
+            updateLength();
+            bounds = new Rect((int) Math.floor(geometry.getBound(geometryIndex, 0)),
+                    (int) Math.floor(geometry.getBound(geometryIndex, 1)),
+                    (int) Math.ceil(geometry.getBound(geometryIndex, 2)),
+                    (int) Math.ceil(geometry.getBound(geometryIndex, 3)));
+        }
+
+        /**
+         * Constructor that shares the geometry of another path, so the same svg can be shown by
+         * many views without measuring it again. A shared measure is only used on the main
+         * thread.
+         *
+         * @param source The path with the geometry.
+         */
+        SvgPath(SvgPath source) {
+            this.path = source.geometry == null ? new Path() : null;
+            this.paint = source.paint;
+            this.styleIndex = source.styleIndex;
+            this.measure = source.measure;
+            this.geometry = source.geometry;
+            this.geometryIndex = source.geometryIndex;
+            this.elementIds = source.elementIds;
+            this.length = source.length;
+            this.measured = source.measured;
+            this.bounds = source.bounds;
+        }
+
         /**
          * Sets the animation step listener.
          *
@@ -217,21 +941,284 @@ public class SvgUtils {
          * @param length The length to be set.
          */
         public void setLength(float length) {
-            path.reset();
-            measure.getSegment(0.0f, length, path, true);
-            path.rLineTo(0.0f, 0.0f);
+            trim(length);
 
             if (animationStepListener != null) {
                 animationStepListener.onAnimationStep();
             }
         }
 
+        /**
+         * Replaces the path with its segment from the start to the given length. An svg path
+         * that is trimmed to nothing gives its Path back to the pool.
+         *
+         * @param length The length of the segment.
+         */
+        void trim(float length) {
+            trimmedLength = length;
+            if (geometry == null) {
+                path.reset();
+                measure.getSegment(0.0f, length, path, true);
+                // Required only for Android 4.4 and earlier
+                path.rLineTo(0.0f, 0.0f);
+            } else if (length > 0) {
+                if (path == null) {
+                    path = obtainPath();
+                }
+                geometry.trim(geometryIndex, length, path);
+            } else {
+                release();
+            }
+        }
+
+        /**
+         * Trims the path to its whole length. A path that was not measured is copied from its
+         * geometry without measuring it, its trimmed length is infinite.
+         */
+        void trimComplete() {
+            if (measured) {
+                if (trimmedLength != length) {
+                    trim(length);
+                }
+            } else if (trimmedLength != Float.POSITIVE_INFINITY) {
+                if (path == null) {
+                    path = obtainPath();
+                }
+                geometry.trim(geometryIndex, Float.POSITIVE_INFINITY, path);
+                trimmedLength = Float.POSITIVE_INFINITY;
+            }
+        }
+
+        /**
+         * @return If the length of the path is known or its geometry was measured since.
+         */
+        boolean isMeasured() {
+            return measured || geometry.isMeasured(geometryIndex);
+        }
+
+        /**
+         * @return If the length of the path was taken, a path whose measurement was deferred is
+         * drawn whole until then.
+         */
+        boolean isLengthKnown() {
+            return measured;
+        }
+
+        /**
+         * Measures an svg path whose measurement was deferred.
+         */
+        void measureIfNeeded() {
+            if (!measured) {
+                geometry.measure(geometryIndex);
+                updateLength();
+            }
+        }
+
+        /**
+         * Takes the length of an svg path from its geometry once it was measured.
+         */
+        void updateLength() {
+            measured = geometry.isMeasured(geometryIndex);
+            length = measured ? geometry.getLength(geometryIndex) : 0;
+        }
+
+        /**
+         * Gives the Path of an svg path back to the pool.
+         */
+        void release() {
+            if (geometry != null && path != null) {
+                recyclePath(path);
+                path = null;
+            }
+        }
+
+        /**
+         * @return The number of contours of the path.
+         */
+        int getContourCount() {
+            if (geometry != null) {
+                return geometry.getContourCount(geometryIndex);
+            }
+            final PathMeasure contours = new PathMeasure(path, false);
+            int count = 0;
+            do {
+                count++;
+            } while (contours.nextContour());
+            return count;
+        }
+
+        /**
+         * @return If the path is partly drawn.
+         */
+        boolean isInProgress() {
+            return trimmedLength > 0 && trimmedLength < length;
+        }
+
         /**
          * @return The length of the path.
          */
         public float getLength() {
             return length;
         }
+
+        /**
+         * @param ids The selected ids.
+         * @return If the element of the path or one of its groups has one of the ids.
+         */
+        boolean hasElementId(final Set<String> ids) {
+            if (elementIds != null) {
+                for (String id : elementIds) {
+                    if (ids.contains(id)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return A Path from the pool or a new one.
+         */
+        private static Path obtainPath() {
+            synchronized (POOL) {
+                final int last = POOL.size() - 1;
+                return last >= 0 ? POOL.remove(last) : new Path();
+            }
+        }
+
+        /**
+         * Keeps a Path for reuse if the pool is not full.
+         *
+         * @param path The released Path.
+         */
+        private static void recyclePath(final Path path) {
+            synchronized (POOL) {
+                if (POOL.size() < MAX_POOL_SIZE) {
+                    POOL.add(path);
+                }
+            }
+        }
+    }
+
+    /**
+     * A contour of an svg sampled at even distances, for building a morph.
+     */
+    private static final class MorphContour {
+        /**
+         * The distance between the samples of a contour.
+         */
+        static final float SAMPLE_DISTANCE = 3f;
+        /**
+         * The largest number of points of a contour.
+         */
+        static final int MAX_POINTS = 256;
+        /**
+         * The samples, x and y after each other.
+         */
+        final float[] points;
+        /**
+         * The number of samples.
+         */
+        final int count;
+        /**
+         * The length of the contour.
+         */
+        final float length;
+        /**
+         * If the contour is closed.
+         */
+        final boolean closed;
+        /**
+         * The x of the center of the samples.
+         */
+        final float centerX;
+        /**
+         * The y of the center of the samples.
+         */
+        final float centerY;
+
+        /**
+         * Constructor.
+         *
+         * @param points The samples.
+         * @param count  The number of samples.
+         * @param length The length of the contour.
+         * @param closed If the contour is closed.
+         */
+        MorphContour(final float[] points, final int count, final float length,
+                     final boolean closed) {
+            this.points = points;
+            this.count = count;
+            this.length = length;
+            this.closed = closed;
+            float x = 0;
+            float y = 0;
+            for (int i = 0; i < count; i++) {
+                x += points[2 * i];
+                y += points[2 * i + 1];
+            }
+            this.centerX = x / count;
+            this.centerY = y / count;
+        }
+
+        /**
+         * @param other The contour of the other svg.
+         * @return How badly the contours fit as a pair, lower is better.
+         */
+        float getPairingCost(final MorphContour other) {
+            final float dx = centerX - other.centerX;
+            final float dy = centerY - other.centerY;
+            final float scale = Math.max(Math.max(length, other.length), 1f);
+            return (float) Math.sqrt(dx * dx + dy * dy) / scale
+                    + Math.abs(length - other.length) / scale;
+        }
+
+        /**
+         * @return A contour of a single point at the center of this one.
+         */
+        MorphContour toCenter() {
+            return new MorphContour(new float[]{centerX, centerY}, 1, 0, closed);
+        }
+
+        /**
+         * Resamples the contour to a number of points.
+         *
+         * @param target The number of points.
+         * @param loop   If the last point must not repeat the first one.
+         * @param out    Receives the points.
+         * @param offset The index of the first coordinate in the output.
+         */
+        void resample(final int target, final boolean loop, final float[] out, final int offset) {
+            final int segments = loop ? target : target - 1;
+            for (int i = 0; i < target; i++) {
+                final float position = segments > 0 ? (count - 1) * i / (float) segments : 0;
+                final int index = Math.min((int) position, count - 1);
+                final int next = Math.min(index + 1, count - 1);
+                final float t = position - index;
+                out[offset + 2 * i] = points[2 * index]
+                        + (points[2 * next] - points[2 * index]) * t;
+                out[offset + 2 * i + 1] = points[2 * index + 1]
+                        + (points[2 * next + 1] - points[2 * index + 1]) * t;
+            }
+        }
+    }
+
+    /**
+     * Receives the paths of the svg while they are extracted.
+     */
+    public interface PathsListener {
+
+        /**
+         * Called with the next paths of the svg, in document order.
+         *
+         * @param paths The new paths. The list is only valid during the call.
+         */
+        void onPathsExtracted(List<SvgPath> paths);
+
+        /**
+         * Called when the published paths must be dropped because the extraction starts over.
+         */
+        void onPathsDiscarded();
     }
 
     public interface AnimationStepListener {
@@ -0,0 +1,359 @@
+package com.eftimoff.androipathview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits the offscreen buffer of a large PathView into fixed-size tiles. Every tile knows which
+ * paths cross it, so only the tiles under paths that changed since the last frame are rendered
+ * again. A tile gets a bitmap only when something is drawn into it, the bitmaps are reused from
+ * a bounded pool.
+ */
+final class TileCache {
+    /**
+     * The width and height of a tile in pixels.
+     */
+    static final int TILE_SIZE = 256;
+    /**
+     * The number of values of the drawing state.
+     */
+    static final int STATE_SIZE = 10;
+    /**
+     * The most bitmaps the pool keeps, the others are recycled.
+     */
+    static final int MAX_POOL = 8;
+
+    /**
+     * The tiles, row after row.
+     */
+    private final List<Tile> tiles = new ArrayList<>();
+    /**
+     * Released bitmaps of tiles, reused for the next grid.
+     */
+    private final List<Bitmap> pool = new ArrayList<>();
+    /**
+     * The drawing state the tiles were rendered with.
+     */
+    private final int[] state = new int[STATE_SIZE];
+    /**
+     * The length every path was drawn with, by the index of the path.
+     */
+    private float[] drawnLengths = new float[0];
+    /**
+     * If a path changed since the last frame, by the index of the path.
+     */
+    private boolean[] changed = new boolean[0];
+    /**
+     * Reused rectangle for the bounds of the paths.
+     */
+    private final RectF pathBounds = new RectF();
+    /**
+     * The width of the grid in pixels.
+     */
+    private int width;
+    /**
+     * The height of the grid in pixels.
+     */
+    private int height;
+    /**
+     * The config of the bitmaps of the tiles.
+     */
+    private Bitmap.Config config;
+    /**
+     * The generation of the paths the tiles were assigned.
+     */
+    private int assignedGeneration = -1;
+
+    /**
+     * Lays out the tiles for a size. The tiles are kept if the size and the config did not
+     * change. The tiles get their bitmaps when they are rendered.
+     *
+     * @param width  The width of the buffer.
+     * @param height The height of the buffer.
+     * @param config The config of the bitmaps.
+     */
+    void setSize(final int width, final int height, final Bitmap.Config config) {
+        if (width == this.width && height == this.height && config == this.config) {
+            return;
+        }
+        releaseTiles();
+        this.width = width;
+        this.height = height;
+        this.config = config;
+        for (int top = 0; top < height; top += TILE_SIZE) {
+            for (int left = 0; left < width; left += TILE_SIZE) {
+                tiles.add(new Tile(left, top));
+            }
+        }
+        // Bitmaps of another config are not used again.
+        for (int i = pool.size() - 1; i >= 0; i--) {
+            if (pool.get(i).getConfig() != config) {
+                pool.remove(i).recycle();
+            }
+        }
+        assignedGeneration = -1;
+    }
+
+    /**
+     * Finds the paths that cross every tile. Nothing is done if the paths were assigned for this
+     * generation.
+     *
+     * @param paths       The paths of the view.
+     * @param generation  The generation of the paths.
+     * @param matrix      Maps the paths into the buffer.
+     * @param strokeWidth The stroke width of the view in pixels, added around the bounds of the
+     *                    paths with the width of their own paint.
+     */
+    void assignPaths(final List<SvgUtils.SvgPath> paths, final int generation,
+                     final Matrix matrix, final float strokeWidth) {
+        if (generation == assignedGeneration) {
+            return;
+        }
+        assignedGeneration = generation;
+        final int count = paths.size();
+        if (drawnLengths.length < count) {
+            drawnLengths = new float[count];
+            changed = new boolean[count];
+        }
+        Arrays.fill(drawnLengths, -1f);
+        for (Tile tile : tiles) {
+            tile.pathCount = 0;
+            tile.dirty = true;
+        }
+        final int columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        final int rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        for (int i = 0; i < count; i++) {
+            final SvgUtils.SvgPath svgPath = paths.get(i);
+            // Room for the caps and the miter joins of the stroke.
+            final float outset = Math.max(strokeWidth, svgPath.paint.getStrokeWidth()) * 2 + 2;
+            pathBounds.set(svgPath.bounds);
+            matrix.mapRect(pathBounds);
+            pathBounds.inset(-outset, -outset);
+            final int left = Math.max(0, (int) Math.floor(pathBounds.left / TILE_SIZE));
+            final int top = Math.max(0, (int) Math.floor(pathBounds.top / TILE_SIZE));
+            final int right = Math.min(columns - 1,
+                    (int) Math.floor(pathBounds.right / TILE_SIZE));
+            final int bottom = Math.min(rows - 1,
+                    (int) Math.floor(pathBounds.bottom / TILE_SIZE));
+            for (int row = top; row <= bottom; row++) {
+                for (int column = left; column <= right; column++) {
+                    tiles.get(row * columns + column).addPath(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks every tile dirty if the drawing state changed since the last frame.
+     *
+     * @param current The current drawing state, STATE_SIZE values.
+     */
+    void updateState(final int[] current) {
+        if (!Arrays.equals(state, current)) {
+            System.arraycopy(current, 0, state, 0, STATE_SIZE);
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Marks the tiles under the paths that were trimmed since the last frame dirty.
+     *
+     * @param paths The paths of the view, in the order they were assigned.
+     * @return The number of dirty tiles.
+     */
+    int markChangedPaths(final List<SvgUtils.SvgPath> paths) {
+        final int count = Math.min(paths.size(), drawnLengths.length);
+        for (int i = 0; i < count; i++) {
+            final float length = paths.get(i).trimmedLength;
+            changed[i] = length != drawnLengths[i];
+            drawnLengths[i] = length;
+        }
+        int dirty = 0;
+        for (Tile tile : tiles) {
+            for (int i = 0; i < tile.pathCount && !tile.dirty; i++) {
+                tile.dirty = changed[tile.paths[i]];
+            }
+            if (tile.dirty) {
+                dirty++;
+            }
+        }
+        return dirty;
+    }
+
+    /**
+     * Marks every tile dirty.
+     */
+    void invalidateAll() {
+        for (Tile tile : tiles) {
+            tile.dirty = true;
+        }
+    }
+
+    /**
+     * @return The number of tiles.
+     */
+    int getTileCount() {
+        return tiles.size();
+    }
+
+    /**
+     * @param index The index of the tile.
+     * @return The tile.
+     */
+    Tile getTile(final int index) {
+        return tiles.get(index);
+    }
+
+    /**
+     * Gives a tile a bitmap from the pool or a new one if it has none.
+     *
+     * @param tile The tile that is rendered.
+     */
+    void obtainBitmap(final Tile tile) {
+        if (tile.bitmap == null) {
+            tile.bitmap = obtainBitmap(config);
+            tile.canvas = new Canvas(tile.bitmap);
+        }
+    }
+
+    /**
+     * Gives the bitmap of a tile that has nothing to draw back to the pool.
+     *
+     * @param tile The tile.
+     */
+    void releaseBitmap(final Tile tile) {
+        if (tile.bitmap != null) {
+            releaseBitmap(tile.bitmap);
+            tile.bitmap = null;
+            tile.canvas = null;
+        }
+    }
+
+    /**
+     * @return The memory used by the bitmaps of the tiles.
+     */
+    int getByteCount() {
+        int bytes = 0;
+        for (Tile tile : tiles) {
+            if (tile.bitmap != null) {
+                bytes += tile.bitmap.getRowBytes() * tile.bitmap.getHeight();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Recycles all the bitmaps, including the pool.
+     */
+    void recycle() {
+        releaseTiles();
+        for (Bitmap bitmap : pool) {
+            bitmap.recycle();
+        }
+        pool.clear();
+        width = 0;
+        height = 0;
+        config = null;
+    }
+
+    /**
+     * Gives the bitmaps of the tiles to the pool and removes the tiles.
+     */
+    private void releaseTiles() {
+        for (Tile tile : tiles) {
+            if (tile.bitmap != null) {
+                releaseBitmap(tile.bitmap);
+            }
+        }
+        tiles.clear();
+    }
+
+    /**
+     * Keeps a bitmap in the pool, or recycles it if the pool is full.
+     *
+     * @param bitmap The bitmap that is no longer used by a tile.
+     */
+    private void releaseBitmap(final Bitmap bitmap) {
+        if (pool.size() < MAX_POOL) {
+            pool.add(bitmap);
+        } else {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * @param config The config of the bitmap.
+     * @return A bitmap from the pool or a new one.
+     */
+    private Bitmap obtainBitmap(final Bitmap.Config config) {
+        for (int i = pool.size() - 1; i >= 0; i--) {
+            if (pool.get(i).getConfig() == config) {
+                return pool.remove(i);
+            }
+        }
+        return Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, config);
+    }
+
+    /**
+     * A tile of the buffer with the paths that cross it.
+     */
+    static final class Tile {
+        /**
+         * The left of the tile in the buffer.
+         */
+        final int left;
+        /**
+         * The top of the tile in the buffer.
+         */
+        final int top;
+        /**
+         * The rendered content of the tile, or null if nothing is drawn into it.
+         */
+        Bitmap bitmap;
+        /**
+         * Canvas for the bitmap, or null.
+         */
+        Canvas canvas;
+        /**
+         * The indices of the paths that cross the tile.
+         */
+        int[] paths = new int[8];
+        /**
+         * The number of paths that cross the tile.
+         */
+        int pathCount;
+        /**
+         * If the tile must be rendered again.
+         */
+        boolean dirty = true;
+
+        /**
+         * Constructor.
+         *
+         * @param left The left of the tile in the buffer.
+         * @param top  The top of the tile in the buffer.
+         */
+        Tile(final int left, final int top) {
+            this.left = left;
+            this.top = top;
+        }
+
+        /**
+         * Adds a path that crosses the tile.
+         *
+         * @param index The index of the path.
+         */
+        private void addPath(final int index) {
+            if (pathCount == paths.length) {
+                paths = Arrays.copyOf(paths, pathCount * 2);
+            }
+            paths[pathCount++] = index;
+        }
+    }
+}
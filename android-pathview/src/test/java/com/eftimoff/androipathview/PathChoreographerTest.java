@@ -0,0 +1,196 @@
+package com.eftimoff.androipathview;
+
+import android.graphics.Paint;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the timeline the choreographer computes for the paths.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class PathChoreographerTest {
+    /**
+     * Tolerance of the trimmed lengths.
+     */
+    private static final float DELTA = 1e-3f;
+
+    /**
+     * The geometry the test paths are built into.
+     */
+    private final PathGeometry geometry = new PathGeometry();
+    /**
+     * The style of the test paths.
+     */
+    private final StyleTable styles = new StyleTable();
+    /**
+     * The scheduled paths.
+     */
+    private final List<SvgUtils.SvgPath> paths = new ArrayList<>();
+    /**
+     * The choreographer under test.
+     */
+    private PathChoreographer choreographer;
+
+    @Before
+    public void setUp() {
+        choreographer = new PathChoreographer();
+    }
+
+    @Test
+    public void equalDurationsPlayOneAfterTheOther() {
+        final SvgUtils.SvgPath first = addLine(10f, true);
+        final SvgUtils.SvgPath second = addLine(30f, true);
+        choreographer.schedule(paths, 1);
+
+        apply(0.25f);
+        assertEquals(5f, first.trimmedLength, DELTA);
+        assertEquals(0f, second.trimmedLength, DELTA);
+        apply(0.75f);
+        assertEquals(10f, first.trimmedLength, DELTA);
+        assertEquals(15f, second.trimmedLength, DELTA);
+    }
+
+    @Test
+    public void durationsByLengthKeepThePenSpeed() {
+        final SvgUtils.SvgPath first = addLine(10f, true);
+        final SvgUtils.SvgPath second = addLine(30f, true);
+        choreographer.setDurationMode(PathChoreographer.DurationMode.BY_LENGTH);
+        choreographer.schedule(paths, 1);
+
+        apply(0.125f);
+        assertEquals(5f, first.trimmedLength, DELTA);
+        assertEquals(0f, second.trimmedLength, DELTA);
+        apply(0.625f);
+        assertEquals(10f, first.trimmedLength, DELTA);
+        assertEquals(15f, second.trimmedLength, DELTA);
+    }
+
+    @Test
+    public void staticPathsGetNoSlot() {
+        final SvgUtils.SvgPath first = addLine(10f, true);
+        final SvgUtils.SvgPath still = addLine(1000f, false);
+        final SvgUtils.SvgPath last = addLine(10f, true);
+        choreographer.setDurationMode(PathChoreographer.DurationMode.BY_LENGTH);
+        choreographer.schedule(paths, 1);
+
+        // The path that is not animated is never trimmed.
+        assertEquals(2, choreographer.apply(paths, 0.25f));
+        assertEquals(5f, first.trimmedLength, DELTA);
+        assertEquals(0f, last.trimmedLength, DELTA);
+        apply(0.75f);
+        assertEquals(10f, first.trimmedLength, DELTA);
+        assertEquals(5f, last.trimmedLength, DELTA);
+        assertEquals(0f, still.trimmedLength, 0f);
+    }
+
+    @Test
+    public void lengthOrderPlaysTheLongestFirst() {
+        final SvgUtils.SvgPath first = addLine(10f, true);
+        final SvgUtils.SvgPath second = addLine(30f, true);
+        choreographer.setOrder(PathChoreographer.Order.LENGTH, false);
+        choreographer.schedule(paths, 1);
+
+        apply(0.5f);
+        assertEquals(0f, first.trimmedLength, DELTA);
+        assertEquals(30f, second.trimmedLength, DELTA);
+
+        choreographer.setOrder(PathChoreographer.Order.LENGTH, true);
+        choreographer.schedule(paths, 1);
+        apply(0.5f);
+        assertEquals(10f, first.trimmedLength, DELTA);
+        assertEquals(0f, second.trimmedLength, DELTA);
+    }
+
+    @Test
+    public void equalKeysKeepTheDocumentOrder() {
+        final SvgUtils.SvgPath first = addLine(10f, true);
+        final SvgUtils.SvgPath second = addLine(30f, true);
+        final SvgUtils.SvgPath third = addLine(10f, true);
+        choreographer.setOrder(PathChoreographer.Order.LENGTH, false);
+        choreographer.schedule(paths, 1);
+
+        apply(0.5f);
+        assertEquals(30f, second.trimmedLength, DELTA);
+        assertEquals(5f, first.trimmedLength, DELTA);
+        assertEquals(0f, third.trimmedLength, DELTA);
+    }
+
+    @Test
+    public void groupsStartTogether() {
+        final SvgUtils.SvgPath first = addLine(10f, true);
+        final SvgUtils.SvgPath second = addLine(20f, true);
+        final SvgUtils.SvgPath third = addLine(10f, true);
+        choreographer.setGroupSize(2);
+        choreographer.schedule(paths, 1);
+
+        apply(0.25f);
+        assertEquals(5f, first.trimmedLength, DELTA);
+        assertEquals(10f, second.trimmedLength, DELTA);
+        assertEquals(0f, third.trimmedLength, DELTA);
+    }
+
+    @Test
+    public void fullOverlapPlaysInParallel() {
+        final SvgUtils.SvgPath first = addLine(10f, true);
+        final SvgUtils.SvgPath second = addLine(30f, true);
+        choreographer.setOverlap(1f);
+        choreographer.schedule(paths, 1);
+
+        apply(0.5f);
+        assertEquals(5f, first.trimmedLength, DELTA);
+        assertEquals(15f, second.trimmedLength, DELTA);
+    }
+
+    @Test
+    public void weightsOverrideTheDurationMode() {
+        final SvgUtils.SvgPath first = addLine(10f, true);
+        final SvgUtils.SvgPath second = addLine(10f, true);
+        choreographer.setWeights(3f, 1f);
+        choreographer.schedule(paths, 1);
+
+        apply(0.375f);
+        assertEquals(5f, first.trimmedLength, DELTA);
+        assertEquals(0f, second.trimmedLength, DELTA);
+        apply(0.875f);
+        assertEquals(5f, second.trimmedLength, DELTA);
+    }
+
+    /**
+     * Trims the paths to a point of the timeline.
+     *
+     * @param time The point of the timeline.
+     */
+    private void apply(final float time) {
+        choreographer.apply(paths, time);
+    }
+
+    /**
+     * Adds a measured horizontal line below the previous one.
+     *
+     * @param length   The length of the line.
+     * @param animated If the line is animated.
+     * @return The path of the line.
+     */
+    private SvgUtils.SvgPath addLine(final float length, final boolean animated) {
+        final float y = paths.size() * 10f;
+        geometry.moveTo(0f, y);
+        geometry.lineTo(length, y);
+        final int index = geometry.endPath();
+        geometry.measure(index);
+        final SvgUtils.SvgPath svgPath = new SvgUtils.SvgPath(geometry, index, null, styles,
+                styles.intern(0xff000000, 1f, Paint.Cap.BUTT, Paint.Join.MITER, 4f));
+        svgPath.animated = animated;
+        paths.add(svgPath);
+        return svgPath;
+    }
+}
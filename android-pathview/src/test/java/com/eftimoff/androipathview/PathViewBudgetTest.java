@@ -0,0 +1,233 @@
+package com.eftimoff.androipathview;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.view.View;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fails the build when the view goes over its budgets: the drawPath calls of a frame, the
+ * allocations of setPercentage and the time the reader takes for the sample svgs.
+ * <p>
+ * The frames are not compared with golden images. The graphics of Robolectric 3.0 only record
+ * the calls and draw no pixels, so every golden image would be blank. The rendering is checked
+ * on a device by the benchmark of the sample.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class PathViewBudgetTest {
+    /**
+     * The resource id the test paths are cached for, no resource is read.
+     */
+    private static final int SVG_RESOURCE = 0x7f060001;
+    /**
+     * The number of paths of the test view.
+     */
+    private static final int PATHS = 50;
+    /**
+     * The width and height of the test view in pixels.
+     */
+    private static final int SIZE = 400;
+    /**
+     * The number of setPercentage calls the allocations are averaged over.
+     */
+    private static final int UPDATES = 10000;
+    /**
+     * The most bytes a setPercentage call may allocate on average, on top of invalidate().
+     */
+    private static final long MAX_BYTES_PER_UPDATE = 8;
+    /**
+     * The most time the reader may take for one sample svg.
+     */
+    private static final long MAX_EXTRACTION_MILLIS = 500;
+
+    /**
+     * The view under test.
+     */
+    private PathView view;
+    /**
+     * The canvas the frames are drawn to.
+     */
+    private Canvas canvas;
+    /**
+     * The metrics of the last frame.
+     */
+    private PathViewMetrics frame;
+
+    @Before
+    public void setUp() {
+        view = new PathView(RuntimeEnvironment.application);
+        view.setPathWidth(1f);
+        cachePaths(view.getPathWidth());
+        view.setSvgResource(SVG_RESOURCE);
+        view.setMetricsListener(new PathView.MetricsListener() {
+            @Override
+            public void onFrameMetrics(final PathViewMetrics metrics) {
+                frame = metrics;
+            }
+
+            @Override
+            public void onLoadMetrics(final PathViewMetrics metrics) {
+            }
+        });
+        view.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, SIZE, SIZE);
+        canvas = new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void drawsEveryPathAtMostOncePerFrame() {
+        for (int i = 0; i <= 10; i++) {
+            view.setPercentage(i / 10f);
+            view.onDraw(canvas);
+            assertEquals(PATHS, frame.getPathCount());
+            assertTrue("drawPath calls " + frame.getDrawPathCalls(),
+                    frame.getDrawPathCalls() <= PATHS);
+        }
+    }
+
+    @Test
+    public void trimsOnlyOnceForManyUpdates() {
+        view.setPercentage(0.1f);
+        view.setPercentage(0.2f);
+        view.setPercentage(0.3f);
+        view.onDraw(canvas);
+        assertEquals(PATHS, frame.getTrimmedPaths());
+        view.onDraw(canvas);
+        assertEquals(0, frame.getTrimmedPaths());
+    }
+
+    @Test
+    public void setPercentageDoesNotAllocate() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+        final long thread = Thread.currentThread().getId();
+        // The first calls load the classes.
+        updateProgress();
+        invalidate();
+        // The shadows of Robolectric allocate in invalidate(), which is the baseline.
+        long start = threads.getThreadAllocatedBytes(thread);
+        invalidate();
+        final long baseline = threads.getThreadAllocatedBytes(thread) - start;
+        start = threads.getThreadAllocatedBytes(thread);
+        updateProgress();
+        final long bytes = threads.getThreadAllocatedBytes(thread) - start;
+        final long perUpdate = Math.max(0, bytes - baseline) / UPDATES;
+        assertTrue("bytes per setPercentage " + perUpdate, perUpdate <= MAX_BYTES_PER_UPDATE);
+    }
+
+    @Test
+    public void readsTheSampleSvgsInTime() throws Exception {
+        final File[] svgs = findSampleSvgs();
+        Assume.assumeTrue(svgs != null);
+        int read = 0;
+        for (File svg : svgs) {
+            // The first read warms up the reader.
+            if (!svg.getName().endsWith(".svg") || !readSvg(svg)) {
+                continue;
+            }
+            final long start = System.nanoTime();
+            readSvg(svg);
+            final long millis = (System.nanoTime() - start) / 1000000;
+            assertTrue(svg.getName() + " took " + millis + "ms",
+                    millis <= MAX_EXTRACTION_MILLIS);
+            read++;
+        }
+        assertTrue("no sample svg could be read", read > 0);
+    }
+
+    /**
+     * Caches measured horizontal lines for the test resource, so the view takes them on layout
+     * without reading the resource.
+     *
+     * @param strokeWidth The stroke width of the view.
+     */
+    private static void cachePaths(final float strokeWidth) {
+        final PathGeometry geometry = new PathGeometry();
+        final StyleTable styles = new StyleTable();
+        final int style = styles.intern(0xff000000, 1f, Paint.Cap.BUTT, Paint.Join.MITER, 4f);
+        final List<SvgUtils.SvgPath> paths = new ArrayList<>();
+        for (int i = 0; i < PATHS; i++) {
+            geometry.moveTo(0f, i * 8f);
+            geometry.lineTo(SIZE, i * 8f);
+            final int index = geometry.endPath();
+            geometry.measure(index);
+            paths.add(new SvgUtils.SvgPath(geometry, index, null, styles, style));
+        }
+        SvgPathCache.put(SVG_RESOURCE, SIZE, SIZE, strokeWidth, paths,
+                new RectF(0, 0, SIZE, SIZE));
+    }
+
+    /**
+     * Sets the progress many times without drawing.
+     */
+    private void updateProgress() {
+        for (int i = 0; i < UPDATES; i++) {
+            view.setPercentage((i % 100) / 100f);
+        }
+    }
+
+    /**
+     * Invalidates the view as many times as the progress is set.
+     */
+    private void invalidate() {
+        for (int i = 0; i < UPDATES; i++) {
+            view.invalidate();
+        }
+    }
+
+    /**
+     * @return The files of the raw resources of the sample, or null if the sample is not next
+     * to the library.
+     */
+    private static File[] findSampleSvgs() {
+        for (String dir : new String[]{"../sample/src/main/res/raw", "sample/src/main/res/raw"}) {
+            final File raw = new File(dir);
+            if (raw.isDirectory()) {
+                return raw.listFiles();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the paths of an svg at the size of the test view.
+     *
+     * @param svg The svg file.
+     * @return False if the reader does not support the svg, AndroidSVG renders it then.
+     */
+    private static boolean readSvg(final File svg) throws Exception {
+        final InputStream stream = new FileInputStream(svg);
+        try {
+            new SvgPathReader(SIZE, SIZE, 1f).read(stream, new SvgUtils(new Paint()));
+            return true;
+        } catch (SvgPathReader.UnsupportedException e) {
+            return false;
+        } finally {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.eftimoff.androipathview;
+
+import android.graphics.Bitmap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the memory budget of the progress frame cache.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class ProgressFrameCacheTest {
+    /**
+     * The bytes of a 10x10 ARGB_8888 frame.
+     */
+    private static final int FRAME_BYTES = 10 * 10 * 4;
+
+    /**
+     * A cache with room for two frames.
+     */
+    private ProgressFrameCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new ProgressFrameCache(FRAME_BYTES * 2 + FRAME_BYTES / 2);
+    }
+
+    @Test
+    public void dropsTheLeastRecentlyUsedFrameOverTheBudget() {
+        cache.put(0, frame(10));
+        cache.put(1, frame(10));
+        assertNotNull(cache.get(0));
+
+        cache.put(2, frame(10));
+        assertEquals(2, cache.getFrameCount());
+        assertEquals(FRAME_BYTES * 2, cache.getByteCount());
+        assertNull(cache.get(1));
+        assertNotNull(cache.get(0));
+        assertNotNull(cache.get(2));
+    }
+
+    @Test
+    public void replacedFrameIsNotCountedTwice() {
+        cache.put(0, frame(10));
+        cache.put(0, frame(10));
+        assertEquals(1, cache.getFrameCount());
+        assertEquals(FRAME_BYTES, cache.getByteCount());
+    }
+
+    @Test
+    public void doesNotKeepAFrameLargerThanTheBudget() {
+        cache.put(0, frame(10));
+        cache.put(1, frame(20));
+        assertEquals(1, cache.getFrameCount());
+        assertNull(cache.get(1));
+        assertNotNull(cache.get(0));
+    }
+
+    @Test
+    public void dropsTheFramesWhenTheStateChanges() {
+        final int[] state = new int[ProgressFrameCache.STATE_SIZE];
+        cache.updateState(state);
+        cache.put(0, frame(10));
+        cache.updateState(state.clone());
+        assertEquals(1, cache.getFrameCount());
+
+        state[0] = 1;
+        cache.updateState(state);
+        assertEquals(0, cache.getFrameCount());
+        assertEquals(0, cache.getByteCount());
+    }
+
+    @Test
+    public void countsTheHitRate() {
+        cache.put(0, frame(10));
+        cache.get(0);
+        cache.get(1);
+        assertEquals(0.5f, cache.getHitRate(), 0f);
+    }
+
+    /**
+     * @param size The width and height of the frame.
+     * @return A new square ARGB_8888 frame.
+     */
+    private static Bitmap frame(final int size) {
+        return Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,116 @@
+package com.eftimoff.androipathview;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the order the loads of the load queue run in.
+ */
+public class SvgLoadQueueTest {
+    /**
+     * Released to let the load that blocks the only loader thread finish.
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+    /**
+     * The names of the loads in the order they ran.
+     */
+    private final List<String> ran = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws InterruptedException {
+        SvgLoadQueue.setMaxConcurrent(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        SvgLoadQueue.submit(new SvgLoadQueue.Task(SvgLoadQueue.PRIORITY_HIDDEN) {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        SvgLoadQueue.setMaxConcurrent(2);
+    }
+
+    @Test
+    public void runsTheHighestPriorityFirst() throws InterruptedException {
+        final CountDownLatch finished = new CountDownLatch(4);
+        SvgLoadQueue.submit(load("hidden", SvgLoadQueue.PRIORITY_HIDDEN, finished));
+        SvgLoadQueue.submit(load("visible", SvgLoadQueue.PRIORITY_VISIBLE, finished));
+        SvgLoadQueue.submit(load("bumped", SvgLoadQueue.PRIORITY_BUMPED, finished));
+        SvgLoadQueue.submit(load("visible later", SvgLoadQueue.PRIORITY_VISIBLE, finished));
+        assertEquals(4, SvgLoadQueue.getWaitingCount());
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("bumped", "visible", "visible later", "hidden"), ran);
+    }
+
+    @Test
+    public void usesThePriorityAtTheTimeTheLoadIsTaken() throws InterruptedException {
+        final CountDownLatch finished = new CountDownLatch(2);
+        final SvgLoadQueue.Task first = load("first", SvgLoadQueue.PRIORITY_HIDDEN, finished);
+        SvgLoadQueue.submit(first);
+        SvgLoadQueue.submit(load("second", SvgLoadQueue.PRIORITY_VISIBLE, finished));
+        first.priority = SvgLoadQueue.PRIORITY_BUMPED;
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("first", "second"), ran);
+    }
+
+    @Test
+    public void cancelledLoadDoesNotRun() throws InterruptedException {
+        final CountDownLatch finished = new CountDownLatch(1);
+        final SvgLoadQueue.Task cancelled =
+                load("cancelled", SvgLoadQueue.PRIORITY_BUMPED, finished);
+        SvgLoadQueue.submit(cancelled);
+        SvgLoadQueue.submit(load("kept", SvgLoadQueue.PRIORITY_HIDDEN, finished));
+        assertTrue(SvgLoadQueue.cancel(cancelled));
+        assertFalse(SvgLoadQueue.cancel(cancelled));
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("kept"), ran);
+        assertFalse(cancelled.done);
+    }
+
+    /**
+     * Creates a load that records its name.
+     *
+     * @param name     The name of the load.
+     * @param priority The priority of the load.
+     * @param finished Counted down when the load ran.
+     * @return The load.
+     */
+    private SvgLoadQueue.Task load(final String name, final int priority,
+                                   final CountDownLatch finished) {
+        return new SvgLoadQueue.Task(priority) {
+            @Override
+            public void run() {
+                ran.add(name);
+                finished.countDown();
+            }
+        };
+    }
+}
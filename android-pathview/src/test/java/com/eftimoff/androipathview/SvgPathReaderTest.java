@@ -0,0 +1,156 @@
+package com.eftimoff.androipathview;
+
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests the numbers, transforms and arcs the svg path reader parses.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE, sdk = 21)
+public class SvgPathReaderTest {
+    /**
+     * Tolerance of the coordinates.
+     */
+    private static final float DELTA = 1e-3f;
+    /**
+     * Tolerance of the lengths of curves, which are measured as lines.
+     */
+    private static final float CURVE_DELTA = 0.05f;
+
+    @Test
+    public void readsNumbersWithoutSeparators() throws Exception {
+        final PathGeometry geometry = read(100, "<path d='M10-5L1e1,2.5.5.5'/>");
+        assertBounds(geometry, 0.5f, -5f, 10f, 2.5f);
+        geometry.measure(0);
+        assertEquals(7.5f + (float) Math.hypot(9.5, 2), geometry.getLength(0), DELTA);
+    }
+
+    @Test
+    public void readsRelativeAndImplicitCommands() throws Exception {
+        final PathGeometry geometry = read(100, "<path d='m10 10 5 0 0 5h-5z'/>");
+        assertBounds(geometry, 10f, 10f, 15f, 15f);
+        geometry.measure(0);
+        assertEquals(20f, geometry.getLength(0), DELTA);
+    }
+
+    @Test
+    public void scalesTheViewBoxToTheViewport() throws Exception {
+        final PathGeometry geometry = read(200, "<path d='M0 0L10 0'/>");
+        assertBounds(geometry, 0f, 0f, 20f, 0f);
+    }
+
+    @Test
+    public void appliesTheTransformsOfTheGroups() throws Exception {
+        final PathGeometry geometry = read(100,
+                "<g transform='translate(10,20)'><path transform='scale(2)' d='M0 0L5 5'/></g>");
+        assertBounds(geometry, 10f, 20f, 20f, 30f);
+    }
+
+    @Test
+    public void appliesATransformList() throws Exception {
+        final PathGeometry geometry = read(100,
+                "<path transform='translate(50 50) rotate(90)' d='M0 0L10 0'/>");
+        assertBounds(geometry, 50f, 50f, 50f, 60f);
+    }
+
+    @Test
+    public void readsArcFlagsWithoutSeparators() throws Exception {
+        final PathGeometry geometry = read(100, "<path d='M0 50A10 10 0 0120 50'/>");
+        geometry.measure(0);
+        assertEquals(10f * (float) Math.PI, geometry.getLength(0), CURVE_DELTA);
+        // The sweep flag draws the half circle above the chord.
+        assertEquals(40f, geometry.getBound(0, 1), 1f);
+        assertEquals(50f, geometry.getBound(0, 3), DELTA);
+    }
+
+    @Test
+    public void scalesUpArcRadiiThatAreTooSmall() throws Exception {
+        final PathGeometry geometry = read(100, "<path d='M0 50A1 1 0 0 0 20 50'/>");
+        geometry.measure(0);
+        assertEquals(10f * (float) Math.PI, geometry.getLength(0), CURVE_DELTA);
+        assertEquals(50f, geometry.getBound(0, 1), DELTA);
+    }
+
+    @Test
+    public void largeArcTakesTheLongWayAround() throws Exception {
+        final PathGeometry geometry = read(100, "<path d='M40 50A10 10 0 1 1 50 40'/>");
+        geometry.measure(0);
+        assertEquals(15f * (float) Math.PI, geometry.getLength(0), CURVE_DELTA);
+    }
+
+    @Test
+    public void readsMorePathsThanTheInitialCapacity() throws Exception {
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append("<path d='M0 ").append(i).append("L10 ").append(i).append("'/>");
+        }
+        final PathGeometry geometry = read(100, content.toString());
+        assertEquals(99f, geometry.getBound(99, 1), DELTA);
+        geometry.measure(99);
+        assertEquals(10f, geometry.getLength(99), DELTA);
+    }
+
+    @Test(expected = SvgPathReader.UnsupportedException.class)
+    public void rejectsUnsupportedUnits() throws Exception {
+        read(100, "<rect width='10mm' height='10'/>");
+    }
+
+    @Test
+    public void readsOnlyTheViewBox() throws Exception {
+        final RectF viewBox = SvgPathReader.readViewBox(stream(
+                "<svg xmlns='http://www.w3.org/2000/svg' viewBox='-10,5 20 40'><path/></svg>"));
+        assertEquals(-10f, viewBox.left, DELTA);
+        assertEquals(5f, viewBox.top, DELTA);
+        assertEquals(10f, viewBox.right, DELTA);
+        assertEquals(45f, viewBox.bottom, DELTA);
+        assertNull(SvgPathReader.readViewBox(stream("<svg viewBox='0 0 0 10'/>")));
+    }
+
+    /**
+     * Reads the paths of an svg with a 100x100 viewBox.
+     *
+     * @param size    The width and height of the viewport.
+     * @param content The elements of the svg.
+     * @return The geometry of the paths.
+     */
+    private static PathGeometry read(final int size, final String content)
+            throws SvgPathReader.UnsupportedException, IOException, XmlPullParserException {
+        final SvgUtils target = new SvgUtils(new Paint());
+        new SvgPathReader(size, size, 0f).read(stream(
+                "<svg xmlns='http://www.w3.org/2000/svg' viewBox='0 0 100 100'>" + content
+                        + "</svg>"), target);
+        return target.getGeometry();
+    }
+
+    /**
+     * @param svg The svg document.
+     * @return A stream of the document.
+     */
+    private static ByteArrayInputStream stream(final String svg) {
+        return new ByteArrayInputStream(svg.getBytes());
+    }
+
+    /**
+     * Checks the bounds of the first path.
+     */
+    private static void assertBounds(final PathGeometry geometry, final float left,
+                                     final float top, final float right, final float bottom) {
+        assertEquals(left, geometry.getBound(0, 0), DELTA);
+        assertEquals(top, geometry.getBound(0, 1), DELTA);
+        assertEquals(right, geometry.getBound(0, 2), DELTA);
+        assertEquals(bottom, geometry.getBound(0, 3), DELTA);
+    }
+}
@@ -0,0 +1,229 @@
+package com.eftimoff.empty;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.test.ActivityInstrumentationTestCase2;
+import android.util.Log;
+import android.view.ViewGroup;
+
+import com.eftimoff.androipathview.PathView;
+import com.eftimoff.androipathview.PathViewMetrics;
+
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times the load and the frames of the svgs of the sample in a PathView through
+ * {@link PathViewMetrics}. Run it on a device with {@code ./gradlew :sample:connectedAndroidTest}
+ * and read the results with {@code adb logcat -s PathViewBenchmark}.
+ */
+public class PathViewBenchmark extends ActivityInstrumentationTestCase2<SecondActivity> {
+    /**
+     * The tag of the results in the log.
+     */
+    private static final String TAG = "PathViewBenchmark";
+    /**
+     * The width and height of the view.
+     */
+    private static final int SIZE = 1080;
+    /**
+     * The number of frames drawn before the frames are timed.
+     */
+    private static final int WARM_UP_FRAMES = 20;
+    /**
+     * The number of timed frames, the progress goes from 0 to 1 over them.
+     */
+    private static final int FRAMES = 120;
+    /**
+     * How long the load may take.
+     */
+    private static final long LOAD_TIMEOUT_SECONDS = 60;
+
+    public PathViewBenchmark() {
+        super(SecondActivity.class);
+    }
+
+    public void testSettings() throws Throwable {
+        benchmark("settings", R.raw.settings);
+    }
+
+    public void testIronman() throws Throwable {
+        benchmark("ironman", R.raw.ironman);
+    }
+
+    public void testMapUsa() throws Throwable {
+        benchmark("map_usa", R.raw.map_usa);
+    }
+
+    public void testFlagUsa() throws Throwable {
+        benchmark("flag_usa", R.raw.flag_usa);
+    }
+
+    /**
+     * Loads an svg into a new view of the activity, then draws the frames of the progress into
+     * a bitmap on the main thread and logs the timings.
+     *
+     * @param name        The name of the svg for the log.
+     * @param svgResource The raw resource id of the svg.
+     */
+    private void benchmark(final String name, final int svgResource) throws Throwable {
+        final Activity activity = getActivity();
+        final Results results = new Results();
+        final CountDownLatch loaded = new CountDownLatch(1);
+        final PathView[] view = new PathView[1];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                final PathView pathView = new PathView(activity);
+                pathView.setMetricsListener(new PathView.MetricsListener() {
+                    @Override
+                    public void onFrameMetrics(final PathViewMetrics metrics) {
+                        results.addFrame(metrics);
+                    }
+
+                    @Override
+                    public void onLoadMetrics(final PathViewMetrics metrics) {
+                        results.setLoad(metrics);
+                        loaded.countDown();
+                    }
+                });
+                pathView.setSvgResource(svgResource);
+                activity.setContentView(pathView, new ViewGroup.LayoutParams(SIZE, SIZE));
+                view[0] = pathView;
+            }
+        });
+        assertTrue(name + " was not loaded",
+                loaded.await(LOAD_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        getInstrumentation().waitForIdleSync();
+
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                final PathView pathView = view[0];
+                final Bitmap bitmap = Bitmap.createBitmap(pathView.getWidth(),
+                        pathView.getHeight(), Bitmap.Config.ARGB_8888);
+                final Canvas canvas = new Canvas(bitmap);
+                for (int i = 0; i < WARM_UP_FRAMES; i++) {
+                    pathView.setPercentage((float) i / WARM_UP_FRAMES);
+                    pathView.draw(canvas);
+                }
+                results.resetFrames();
+
+                Debug.startAllocCounting();
+                Debug.resetThreadAllocCount();
+                Debug.resetThreadAllocSize();
+                final long start = System.nanoTime();
+                for (int i = 1; i <= FRAMES; i++) {
+                    pathView.setPercentage((float) i / FRAMES);
+                    pathView.draw(canvas);
+                }
+                results.elapsedNanos = System.nanoTime() - start;
+                results.allocations = Debug.getThreadAllocCount();
+                results.allocatedBytes = Debug.getThreadAllocSize();
+                Debug.stopAllocCounting();
+                bitmap.recycle();
+            }
+        });
+        results.log(name);
+        assertEquals(FRAMES, results.frames);
+    }
+
+    /**
+     * The timings of the load and the sums of the timings of the frames of one svg.
+     */
+    private static final class Results {
+        /**
+         * The number of paths of the svg.
+         */
+        int paths;
+        /**
+         * The time from the size change to the loaded paths.
+         */
+        long loadNanos;
+        /**
+         * The time the paths were captured.
+         */
+        long captureNanos;
+        /**
+         * The time the paths were measured.
+         */
+        long measureNanos;
+        /**
+         * The number of timed frames.
+         */
+        int frames;
+        /**
+         * The sum of the frame durations the view measured.
+         */
+        long frameNanos;
+        /**
+         * The sum of the time spent drawing the paths.
+         */
+        long pathsNanos;
+        /**
+         * The sum of the time spent drawing the offscreen bitmap.
+         */
+        long blitNanos;
+        /**
+         * The wall time of the timed frames, with the progress updates.
+         */
+        long elapsedNanos;
+        /**
+         * The objects allocated on the main thread during the timed frames.
+         */
+        int allocations;
+        /**
+         * The bytes allocated on the main thread during the timed frames.
+         */
+        int allocatedBytes;
+
+        /**
+         * Keeps the timings of the load.
+         */
+        void setLoad(final PathViewMetrics metrics) {
+            paths = metrics.getPathCount();
+            loadNanos = metrics.getLoaderLatencyNanos();
+            captureNanos = metrics.getLoadCaptureNanos();
+            measureNanos = metrics.getLoadMeasureNanos();
+        }
+
+        /**
+         * Adds the timings of a frame.
+         */
+        void addFrame(final PathViewMetrics metrics) {
+            frames++;
+            frameNanos += metrics.getFrameNanos();
+            pathsNanos += metrics.getStageNanos(PathViewMetrics.STAGE_PATHS);
+            blitNanos += metrics.getStageNanos(PathViewMetrics.STAGE_BLIT);
+        }
+
+        /**
+         * Drops the frames of the warm up.
+         */
+        void resetFrames() {
+            frames = 0;
+            frameNanos = 0;
+            pathsNanos = 0;
+            blitNanos = 0;
+        }
+
+        /**
+         * Logs the results.
+         *
+         * @param name The name of the svg.
+         */
+        void log(final String name) {
+            Log.i(TAG, String.format(Locale.US, "%s: %d paths, load %.1f ms (capture %.1f ms,"
+                            + " measure %.1f ms)", name, paths, loadNanos / 1e6,
+                    captureNanos / 1e6, measureNanos / 1e6));
+            Log.i(TAG, String.format(Locale.US, "%s: %.1f frames/s, frame %.2f ms (paths %.2f ms,"
+                            + " blit %.2f ms), %d allocations and %d bytes per frame", name,
+                    FRAMES / (elapsedNanos / 1e9), frameNanos / 1e6 / frames,
+                    pathsNanos / 1e6 / frames, blitNanos / 1e6 / frames, allocations / FRAMES,
+                    allocatedBytes / FRAMES));
+        }
+    }
+}